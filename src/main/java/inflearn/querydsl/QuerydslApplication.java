@@ -1,13 +1,27 @@
 package inflearn.querydsl;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+import javax.persistence.EntityManager;
+
+// R2DBC ConnectionFactory 빈이 있으면 DataSourceAutoConfiguration 이 빠져서 JPA 가 DataSource 를 못 찾는다.
+// R2DBC 커넥션은 MemberReactiveRepository 안에서만 만든다.
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling // OutboxRelay
 public class QuerydslApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(QuerydslApplication.class, args);
     }
 
+    // EntityManager 는 트랜잭션 단위로 바인딩되는 프록시이므로 싱글톤으로 공유해도 동시성 문제가 없다.
+    @Bean
+    JPAQueryFactory jpaQueryFactory(EntityManager em) {
+        return new JPAQueryFactory(em);
+    }
 }
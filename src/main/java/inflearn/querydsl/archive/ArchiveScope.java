@@ -0,0 +1,9 @@
+package inflearn.querydsl.archive;
+
+/**
+ * 회원 조회 범위
+ */
+public enum ArchiveScope {
+    HOT, // member 만 (기본)
+    ALL  // member + member_archive
+}
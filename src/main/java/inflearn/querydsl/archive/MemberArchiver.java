@@ -0,0 +1,121 @@
+package inflearn.querydsl.archive;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.ArchivedMember;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.outbox.OutboxBulkOperations;
+import inflearn.querydsl.scheduler.QueryPriority;
+import inflearn.querydsl.scheduler.QueryScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static inflearn.querydsl.entity.QMember.member;
+
+/**
+ * 오래 활동하지 않은 회원을 member 에서 member_archive 로 옮긴다.
+ * - batchSize 명씩 복사(insert) 후 삭제하고 묶음마다 커밋한다. - 한 번에 옮기면 트랜잭션과 락이 길어진다.
+ * - 묶음 하나는 QueryScheduler 의 BATCH 등급으로 실행한다. - 화면 조회, 리포트보다 커넥션을 늦게 받는다.
+ * - 삭제는 OutboxBulkOperations 를 거치므로 캐시, 비트맵 인덱스에도 DELETE 로 반영된다.
+ * - 대상 row 를 먼저 잠그고(select ... for update) 다시 확인한 뒤 옮긴다.
+ *   옮기는 도중에 로그인한 회원(lastActiveAt 갱신)은 아카이브되지 않는다.
+ * - lastActiveAt 이 null 인 회원은 옮기지 않는다. 엔티티로 만든 회원은 생성 시 touch() 되므로
+ *   null 은 JDBC 로 직접 넣었거나 컬럼이 생기기 전의 데이터 - 활동 시각을 모르므로 휴면으로 보지 않는다.
+ *   이런 회원도 옮기려면 먼저 last_active_at 을 채워야 한다.
+ */
+@Slf4j
+@Component
+public class MemberArchiver {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final OutboxBulkOperations outboxBulkOperations;
+    private final TransactionTemplate transactionTemplate;
+    private final QueryScheduler queryScheduler;
+    private final int batchSize;
+    private final int inactiveDays;
+
+    public MemberArchiver(EntityManager em,
+                          JPAQueryFactory queryFactory,
+                          OutboxBulkOperations outboxBulkOperations,
+                          PlatformTransactionManager transactionManager,
+                          QueryScheduler queryScheduler,
+                          @Value("${member-archive.batch-size:500}") int batchSize,
+                          @Value("${member-archive.inactive-days:1095}") int inactiveDays) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.outboxBulkOperations = outboxBulkOperations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queryScheduler = queryScheduler;
+        this.batchSize = batchSize;
+        this.inactiveDays = inactiveDays;
+    }
+
+    @Scheduled(cron = "${member-archive.cron:0 0 4 * * *}")
+    public void scheduledArchive() {
+        try {
+            long archived = archive(LocalDateTime.now().minusDays(inactiveDays));
+            log.info("member archive : {} 명", archived);
+        } catch (RuntimeException e) {
+            log.warn("member archive 실패 - 다음 주기에 이어서 진행", e);
+        }
+    }
+
+    /** 마지막 활동이 cutoff 이전인 회원을 모두 옮긴다. - 옮긴 회원 수를 반환
+     * 호출한 쪽에 트랜잭션이 있으면 참여한다.
+     */
+    public long archive(LocalDateTime cutoff) {
+        long total = 0;
+        while (true) {
+            Long moved = queryScheduler.execute(QueryPriority.BATCH,
+                    () -> transactionTemplate.execute(status -> archiveBatch(cutoff)));
+            total += moved;
+            if (moved == 0) return total; // 잠근 묶음이 모두 로그인해 0 이면 나머지는 다음 주기에 옮긴다.
+        }
+    }
+
+    private long archiveBatch(LocalDateTime cutoff) {
+        // 대상 row 를 잠근다. - 이후에는 로그인이 lastActiveAt 을 바꾸지 못하고 이 트랜잭션이 끝날 때까지 기다린다.
+        List<Long> locked = queryScheduler.withTimeout(QueryPriority.BATCH, queryFactory
+                .select(member.id)
+                .from(member)
+                .where(inactiveBefore(cutoff))
+                .orderBy(member.id.asc())
+                .limit(batchSize)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE))
+                .fetch();
+        if (locked.isEmpty()) return 0;
+
+        // 잠근 뒤 다시 읽는다. - 락을 기다리는 동안 커밋된 로그인은 여기서 빠진다.
+        List<Member> members = queryScheduler.withTimeout(QueryPriority.BATCH, queryFactory
+                .selectFrom(member)
+                .where(member.id.in(locked), inactiveBefore(cutoff))
+                .orderBy(member.id.asc()))
+                .fetch();
+        if (members.isEmpty()) return 0;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = new ArrayList<>(members.size());
+        for (Member m : members) {
+            em.persist(new ArchivedMember(m, now));
+            ids.add(m.getId());
+        }
+        // flush(archive insert) -> DELETE 이벤트 기록 -> delete -> clear
+        return outboxBulkOperations.delete(member, member.id, member.id.in(ids));
+    }
+
+    // lastActiveAt < cutoff - null 은 SQL 비교에서 빠진다. (클래스 주석 참고)
+    private static BooleanExpression inactiveBefore(LocalDateTime cutoff) {
+        return member.lastActiveAt.lt(cutoff);
+    }
+}
@@ -0,0 +1,412 @@
+package inflearn.querydsl.bitmap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.outbox.ChangeOperation;
+import inflearn.querydsl.outbox.OutboxEvent;
+import inflearn.querydsl.outbox.OutboxSubscriber;
+import inflearn.querydsl.snapshot.DatasetRestoredEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static inflearn.querydsl.outbox.QOutboxEvent.outboxEvent;
+
+/**
+ * 나이별, 팀별 회원 id 압축 비트맵(Roaring) 인덱스
+ * - "teamA 소속이면서 20~30살" 같은 조건을 비트맵 교집합으로 DB 없이 계산한다.
+ * - 아웃박스 이벤트(변경 후 전체 상태)를 받아 갱신하고, 반영한 이벤트 id 를 기억한다.
+ * - 커밋되었지만 아직 반영하지 않은 이벤트가 하나라도 있으면 stale 로 보고 사용하는 쪽에서 DB 로 조회한다.
+ *
+ * 이벤트 id 는 커밋 순서가 아니므로(OutboxEvent 참고) "최대 id 까지 반영"으로 판단하지 않는다.
+ * 작은 id 가 늦게 커밋되면 빈 번호가 생기고, 롤백된 id 는 영원히 비어 있다.
+ * 그래서 DB 의 미발행 이벤트(published = false) 하나하나가 반영되었는지 확인한다.
+ * - 발행된 이벤트 : OutboxRelay 가 구독자에게 전달한 뒤 같은 트랜잭션에서 published 로 바꾸므로 반영된 것
+ * - 미발행 이벤트 : rebuild() 때 이미 보였거나(읽은 데이터에 포함) 그 뒤에 onEvents() 로 받았어야 한다.
+ * 아웃박스를 거치지 않는 쓰기(스냅샷 복원, JDBC 직접 쓰기)는 알 수 없으므로
+ * DatasetRestoredEvent 를 받거나 invalidate() 로 다시 만들 때까지 사용하지 않는다.
+ *
+ * rebuild() 는 호출한 쪽의 트랜잭션과 상관없이 새 읽기 전용 트랜잭션(REQUIRES_NEW)에서 읽는다.
+ * 커밋되지 않은(롤백될 수 있는) 데이터가 공용 인덱스에 들어가지 않게 한다.
+ * invalidate() 나 이벤트 반영 실패로 stale 이 되면 백그라운드에서 다시 만든다.
+ */
+@Slf4j
+@Component
+public class MemberBitmapIndex implements OutboxSubscriber {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate rebuildTransaction;
+    private final ExecutorService rebuilder;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<Integer, Roaring64NavigableMap> byAge = new TreeMap<>();
+    private final Map<Long, Roaring64NavigableMap> byTeam = new HashMap<>();
+    private final Map<String, Set<Long>> teamIdsByName = new HashMap<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+    // 변경 시 이전 버킷에서 빼기 위한 현재 값
+    private final Map<Long, Integer> ageOf = new HashMap<>();
+    private final Map<Long, Long> teamOf = new HashMap<>();
+
+    private volatile boolean ready;
+    // rebuild() 로 읽은 데이터에 포함된 미발행 이벤트 + 그 뒤에 반영한 이벤트 - lock 으로 보호
+    private final Set<Long> coveredEvents = new HashSet<>();
+    // rebuild() 가 DB 를 읽는 동안 반영한 이벤트 - 읽은 데이터를 덮어쓴 뒤 다시 반영한다.
+    private List<OutboxEvent> replayLog;
+    // invalidate() 횟수 - rebuild() 도중 무효화되면 다 만들어도 사용하지 않는다.
+    private long generation;
+
+    public MemberBitmapIndex(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildTransaction.setReadOnly(true);
+        this.rebuilder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "bitmap-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("bitmap index 초기화 실패 - DB 조회로 대체", e);
+        }
+    }
+
+    /** DB 에서 전체를 다시 읽는다.
+     * 읽기 전에 미발행 이벤트 id 를 먼저 기억해 둔다. 읽는 동안 들어온 이벤트는 읽은 데이터 위에 다시 반영한다.
+     */
+    public synchronized void rebuild() {
+        long startedAt;
+        lock.writeLock().lock();
+        try {
+            replayLog = new ArrayList<>();
+            startedAt = generation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Long> pending = new ArrayList<>();
+        List<Tuple> teams = new ArrayList<>();
+        List<Tuple> members = new ArrayList<>();
+        try {
+            rebuildTransaction.executeWithoutResult(status -> {
+                pending.addAll(pendingEventIds());
+                teams.addAll(queryFactory.select(team.id, team.name).from(team).fetch());
+                members.addAll(queryFactory.select(member.id, member.age, member.team.id).from(member).fetch());
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                replayLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            byAge.clear();
+            byTeam.clear();
+            teamIdsByName.clear();
+            teamNames.clear();
+            ageOf.clear();
+            teamOf.clear();
+            for (Tuple tuple : teams) {
+                putTeamInternal(tuple.get(team.id), tuple.get(team.name));
+            }
+            for (Tuple tuple : members) {
+                putMemberInternal(tuple.get(member.id), tuple.get(member.age), tuple.get(member.team.id));
+            }
+            coveredEvents.clear();
+            coveredEvents.addAll(pending);
+
+            List<OutboxEvent> replay = replayLog;
+            replayLog = null;
+            for (OutboxEvent event : replay) {
+                apply(event);
+                coveredEvents.add(event.getId());
+            }
+            ready = generation == startedAt;
+        } catch (IOException | RuntimeException e) {
+            log.warn("bitmap index 재반영 실패 - stale 처리", e);
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 아웃박스를 거치지 않은 변경이 있을 때 - 바로 사용을 멈추고 백그라운드에서 다시 만든다.
+     * 트랜잭션 안에서 호출하면 그 트랜잭션이 끝난 뒤(커밋이든 롤백이든) 다시 만든다.
+     * 커밋 전에 읽으면 그 변경이 빠진 인덱스가 사용 가능 상태가 된다.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    rebuildAsync();
+                }
+            });
+        } else {
+            rebuildAsync();
+        }
+    }
+
+    // 스냅샷 복원 - 아웃박스를 거치지 않으므로 복원한 트랜잭션이 끝나면 다시 만든다.
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        invalidate();
+    }
+
+    /** 백그라운드에서 rebuild() - 이미 대기 중이면 한 번만 실행한다. */
+    public void rebuildAsync() {
+        if (!rebuildQueued.compareAndSet(false, true)) return;
+        try {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("bitmap index 재생성 실패 - DB 조회로 대체", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rebuildQueued.set(false); // 종료 중
+        }
+    }
+
+    @Override
+    public void onEvents(List<OutboxEvent> events) {
+        boolean failed = false;
+        lock.writeLock().lock();
+        try {
+            if (!ready && replayLog == null) return; // 다음 rebuild() 가 DB 에서 읽어 온다.
+
+            for (OutboxEvent event : events) {
+                if (replayLog != null) replayLog.add(event); // 실패한 이벤트도 rebuild() 에서 다시 시도한다.
+                try {
+                    apply(event);
+                } catch (IOException | RuntimeException e) {
+                    // 반영하지 못한 변경이 있으면 다시 만들 때까지 사용하지 않는다.
+                    log.warn("bitmap index 반영 실패 - stale 처리 : {}", event, e);
+                    ready = false;
+                    failed = true;
+                    break;
+                }
+                coveredEvents.add(event.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (failed) {
+            rebuildAsync(); // 발행된 이벤트는 이미 커밋되었으므로 바로 다시 만든다.
+        }
+    }
+
+    /** 사용할 수 있는지 - 커밋된 미발행 이벤트가 모두 반영되어 있어야 한다.
+     * 현재 트랜잭션에서 아직 커밋하지 않은 변경도 아웃박스에 보이므로 자기 변경은 DB 에서 읽게 된다.
+     */
+    public boolean isFresh() {
+        if (!ready) return false;
+        List<Long> pending = pendingEventIds();
+
+        lock.writeLock().lock();
+        try {
+            if (!ready || !coveredEvents.containsAll(pending)) return false;
+            // 발행된 이벤트는 더 이상 확인할 필요가 없다.
+            coveredEvents.retainAll(new HashSet<>(pending));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putMember(long memberId, int age, Long teamId) {
+        lock.writeLock().lock();
+        try {
+            putMemberInternal(memberId, age, teamId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeMember(long memberId) {
+        lock.writeLock().lock();
+        try {
+            removeMemberInternal(memberId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putTeam(long teamId, String name) {
+        lock.writeLock().lock();
+        try {
+            putTeamInternal(teamId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeTeam(long teamId) {
+        lock.writeLock().lock();
+        try {
+            removeTeamName(teamId); // 소속 회원 비트맵은 회원 이벤트로 정리된다.
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 조건에 맞는 회원 id - null 인 조건은 제외 */
+    public Roaring64NavigableMap match(Integer ageGoe, Integer ageLoe, String teamName) {
+        lock.readLock().lock();
+        try {
+            Roaring64NavigableMap result = null;
+
+            if (ageGoe != null || ageLoe != null) {
+                int from = ageGoe != null ? ageGoe : Integer.MIN_VALUE;
+                int to = ageLoe != null ? ageLoe : Integer.MAX_VALUE;
+                Roaring64NavigableMap ages = new Roaring64NavigableMap();
+                if (from <= to) {
+                    byAge.subMap(from, true, to, true).values().forEach(ages::or);
+                }
+                result = ages;
+            }
+
+            if (teamName != null) {
+                Roaring64NavigableMap teams = new Roaring64NavigableMap();
+                for (Long teamId : teamIdsByName.getOrDefault(teamName, Collections.emptySet())) {
+                    Roaring64NavigableMap ids = byTeam.get(teamId);
+                    if (ids != null) teams.or(ids);
+                }
+                if (result == null) result = teams;
+                else result.and(teams);
+            }
+
+            if (result == null) { // 조건 없음 - 전체
+                Roaring64NavigableMap all = new Roaring64NavigableMap();
+                byAge.values().forEach(all::or);
+                result = all;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count(Integer ageGoe, Integer ageLoe, String teamName) {
+        return match(ageGoe, ageLoe, teamName).getLongCardinality();
+    }
+
+    // idx_outbox_event_published(published, id) 로 미발행 이벤트만 읽는다.
+    private List<Long> pendingEventIds() {
+        return queryFactory
+                .select(outboxEvent.id)
+                .from(outboxEvent)
+                .where(outboxEvent.published.isFalse())
+                .fetch();
+    }
+
+    private void apply(OutboxEvent event) throws IOException {
+        JsonNode payload = objectMapper.readTree(event.getPayload());
+        long id = event.getAggregateId();
+
+        if ("Member".equals(event.getAggregateType())) {
+            if (event.getOperation() == ChangeOperation.DELETE) {
+                removeMember(id);
+            } else {
+                JsonNode teamId = payload.path("teamId");
+                putMember(id, payload.path("age").asInt(), teamId.isNumber() ? teamId.asLong() : null);
+            }
+        } else if ("Team".equals(event.getAggregateType())) {
+            if (event.getOperation() == ChangeOperation.DELETE) {
+                removeTeam(id);
+            } else {
+                JsonNode name = payload.path("name");
+                putTeam(id, name.isTextual() ? name.asText() : null);
+            }
+        }
+    }
+
+    private void putMemberInternal(long memberId, int age, Long teamId) {
+        removeMemberInternal(memberId);
+        byAge.computeIfAbsent(age, k -> new Roaring64NavigableMap()).addLong(memberId);
+        ageOf.put(memberId, age);
+        if (teamId != null) {
+            byTeam.computeIfAbsent(teamId, k -> new Roaring64NavigableMap()).addLong(memberId);
+            teamOf.put(memberId, teamId);
+        }
+    }
+
+    private void removeMemberInternal(long memberId) {
+        Integer age = ageOf.remove(memberId);
+        if (age != null) {
+            Roaring64NavigableMap ids = byAge.get(age);
+            ids.removeLong(memberId);
+            if (ids.getLongCardinality() == 0) byAge.remove(age);
+        }
+        Long teamId = teamOf.remove(memberId);
+        if (teamId != null) {
+            Roaring64NavigableMap ids = byTeam.get(teamId);
+            ids.removeLong(memberId);
+            if (ids.getLongCardinality() == 0) byTeam.remove(teamId);
+        }
+    }
+
+    private void putTeamInternal(long teamId, String name) {
+        removeTeamName(teamId);
+        if (name == null) return;
+        teamNames.put(teamId, name);
+        teamIdsByName.computeIfAbsent(name, k -> new HashSet<>()).add(teamId);
+    }
+
+    private void removeTeamName(long teamId) {
+        String old = teamNames.remove(teamId);
+        if (old == null) return;
+        Set<Long> ids = teamIdsByName.get(old);
+        ids.remove(teamId);
+        if (ids.isEmpty()) teamIdsByName.remove(old);
+    }
+}
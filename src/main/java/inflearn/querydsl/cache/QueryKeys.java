@@ -0,0 +1,60 @@
+package inflearn.querydsl.cache;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import inflearn.querydsl.support.PathCollector;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Querydsl 쿼리 메타데이터로 캐시 키와 참조 테이블(엔티티)을 만든다.
+ * Expression.toString() 은 상수 값을 그대로 출력하므로(member.age between 0 and 20)
+ * 파라미터가 다르면 다른 키가 된다.
+ */
+final class QueryKeys {
+
+    private QueryKeys() {
+    }
+
+    static String key(QueryMetadata metadata) {
+        StringBuilder key = new StringBuilder();
+        key.append("select ");
+        if (metadata.isDistinct()) key.append("distinct ");
+        key.append(metadata.getProjection());
+        for (JoinExpression join : metadata.getJoins()) {
+            key.append(' ').append(join.getType()).append(' ').append(join.getTarget());
+            if (join.getCondition() != null) key.append(" on ").append(join.getCondition());
+            for (JoinFlag flag : join.getFlags()) key.append(' ').append(flag.getFlag()); // fetch 조인 등
+        }
+        if (metadata.getWhere() != null) key.append(" where ").append(metadata.getWhere());
+        if (!metadata.getGroupBy().isEmpty()) key.append(" group by ").append(metadata.getGroupBy());
+        if (metadata.getHaving() != null) key.append(" having ").append(metadata.getHaving());
+        if (!metadata.getOrderBy().isEmpty()) key.append(" order by ").append(metadata.getOrderBy());
+        QueryModifiers modifiers = metadata.getModifiers();
+        if (modifiers.getLimit() != null) key.append(" limit ").append(modifiers.getLimit());
+        if (modifiers.getOffset() != null) key.append(" offset ").append(modifiers.getOffset());
+        for (Map.Entry<ParamExpression<?>, Object> param : metadata.getParams().entrySet()) {
+            key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+        }
+        return key.toString();
+    }
+
+    // 쿼리가 읽는 엔티티 이름 (서브 쿼리 포함) - Member, Team
+    static Set<String> tables(QueryMetadata metadata) {
+        Set<String> tables = new TreeSet<>();
+        for (Path<?> path : PathCollector.all(metadata)) {
+            Path<?> root = path.getRoot();
+            if (root instanceof EntityPath) tables.add(root.getType().getSimpleName());
+            // member.team 처럼 연관관계를 따라가면 대상 엔티티(Team)도 읽는다.
+            if (path instanceof EntityPath && path != root) tables.add(path.getType().getSimpleName());
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,260 @@
+package inflearn.querydsl.cache;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import inflearn.querydsl.outbox.OutboxEvent;
+import inflearn.querydsl.outbox.OutboxSubscriber;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 오래 걸리고 약간 지난 값이어도 괜찮은 리포트 쿼리(CaseBuilder 분류, 팀별 평균 등)의 결과 캐시
+ * - 키 : Querydsl 쿼리 메타데이터(상수 값 포함)를 문자열로 만든 값
+ * - ttl 이 지나면 다시 조회하고, 같은 키를 동시에 조회하면 한 번만 실행한다(single-flight).
+ * - refreshAheadRatio 이상 시간이 지난 값은 그대로 돌려주면서 백그라운드에서 미리 갱신한다.
+ * - member, team 변경은 해당 엔티티를 읽는 결과만 지운다.
+ *   이 프로세스의 변경은 커밋 직후(afterCommit), 다른 프로세스의 변경은 아웃박스 이벤트(onEvents)로 받는다.
+ *   다른 프로세스의 변경은 relay 주기(outbox.relay.interval-ms) 동안 지난 값이 보일 수 있다.
+ * - maxEntries, maxRows(캐시된 전체 row 수)를 넘으면 가장 오래 사용하지 않은 결과부터 지운다.
+ * - 쓰기 트랜잭션 안에서는 캐시를 읽지도, 넣지도 않고 바로 조회한다.
+ *   아직 커밋되지 않은(롤백될 수도 있는) 변경이 보이는 결과가 다른 요청에 공유되면 안 되고,
+ *   반대로 같은 트랜잭션의 변경이 캐시된 결과에 가려져도 안 된다.
+ */
+@Slf4j
+@Component
+public class QueryResultCache implements OutboxSubscriber {
+
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final int maxEntries;
+    private final long maxRows;
+
+    // access-order LinkedHashMap (LRU) - lock 으로 보호
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Object lock = new Object();
+    private long cachedRows;
+
+    private final ConcurrentHashMap<String, CompletableFuture<List<?>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong invalidationVersion = new AtomicLong();
+    private final ExecutorService refresher;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+
+    @Autowired
+    public QueryResultCache(@Value("${query-cache.ttl-ms:60000}") long ttlMillis,
+                            @Value("${query-cache.refresh-ahead-ratio:0.8}") double refreshAheadRatio,
+                            @Value("${query-cache.max-entries:1000}") int maxEntries,
+                            @Value("${query-cache.max-rows:100000}") long maxRows) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.refreshAheadNanos = (long) (ttlNanos * refreshAheadRatio);
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+        this.refresher = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "query-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> List<T> fetch(JPAQuery<T> query) {
+        return fetch(query, JPAQuery::fetch);
+    }
+
+    /** executor : 캐시에 없을 때(백그라운드 갱신 포함) 쿼리를 실행하는 방법
+     * 예) queryResultCache.fetch(query, q -> queryScheduler.fetch(QueryPriority.REPORT, q))
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> fetch(JPAQuery<T> query, Function<JPAQuery<T>, List<T>> executor) {
+        if (!isCacheable()) {
+            bypasses.incrementAndGet();
+            return executor.apply(query); // 같은 트랜잭션의 변경이 보이는 결과 - 다른 요청과 합치지도 않는다.
+        }
+
+        String key = QueryKeys.key(query.getMetadata());
+        long now = System.nanoTime();
+
+        Entry entry;
+        synchronized (lock) {
+            entry = entries.get(key);
+        }
+        if (entry != null && now - entry.loadedAt < ttlNanos) {
+            hits.incrementAndGet();
+            if (now - entry.loadedAt >= refreshAheadNanos) {
+                refreshAsync(key, entry);
+            }
+            return (List<T>) entry.rows;
+        }
+
+        misses.incrementAndGet();
+        Set<String> tables = QueryKeys.tables(query.getMetadata());
+        return (List<T>) load(key, tables, () -> executor.apply(query.clone())); // 갱신할 때도 같은 쿼리를 복제해서 사용
+    }
+
+    // 트랜잭션 밖이거나 읽기 전용 트랜잭션일 때만 캐시에 넣는다.
+    private static boolean isCacheable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /** 엔티티(Member, Team)를 읽는 결과를 모두 지운다. */
+    public void invalidate(String table) {
+        invalidationVersion.incrementAndGet();
+        synchronized (lock) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.tables.contains(table)) {
+                    it.remove();
+                    cachedRows -= entry.rows.size();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        invalidationVersion.incrementAndGet();
+        synchronized (lock) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            cachedRows = 0;
+        }
+    }
+
+    // 아웃박스로 들어온 member, team 변경
+    @Override
+    public void onEvents(List<OutboxEvent> events) {
+        events.stream()
+                .map(OutboxEvent::getAggregateType)
+                .collect(Collectors.toSet())
+                .forEach(this::invalidate);
+    }
+
+    // 이 프로세스에서 커밋된 member, team 변경 - relay 주기를 기다리지 않고 바로 지운다.
+    @Override
+    public void afterCommit(Set<String> aggregateTypes) {
+        aggregateTypes.forEach(this::invalidate);
+    }
+
+    public Stats getStats() {
+        synchronized (lock) {
+            return new Stats(hits.get(), misses.get(), loads.get(), refreshes.get(), evictions.get(), invalidations.get(),
+                    bypasses.get(), entries.size(), cachedRows);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private List<?> load(String key, Set<String> tables, Supplier<List<?>> loader) {
+        CompletableFuture<List<?>> mine = new CompletableFuture<>();
+        CompletableFuture<List<?>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return join(running); // 같은 키를 이미 조회 중이면 그 결과를 기다린다.
+        }
+
+        try {
+            long version = invalidationVersion.get();
+            loads.incrementAndGet();
+            List<?> rows = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+            // 조회 도중 변경이 들어왔으면 오래된 값일 수 있으므로 저장하지 않는다.
+            if (version == invalidationVersion.get()) {
+                put(key, new Entry(rows, tables, loader, System.nanoTime()));
+            }
+            mine.complete(rows);
+            return rows;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void refreshAsync(String key, Entry entry) {
+        if (inFlight.containsKey(key)) return;
+        refreshes.incrementAndGet();
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(key, entry.tables, entry.loader);
+                } catch (RuntimeException e) {
+                    log.warn("query cache refresh 실패 : {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // 종료 중
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (lock) {
+            Entry old = entries.put(key, entry);
+            if (old != null) cachedRows -= old.rows.size();
+            cachedRows += entry.rows.size();
+
+            Iterator<Entry> it = entries.values().iterator();
+            while ((entries.size() > maxEntries || cachedRows > maxRows) && it.hasNext()) {
+                Entry eldest = it.next();
+                if (eldest == entry) continue; // 방금 넣은 값은 남긴다.
+                it.remove();
+                cachedRows -= eldest.rows.size();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static List<?> join(CompletableFuture<List<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static final class Entry {
+        final List<?> rows;
+        final Set<String> tables;
+        final Supplier<List<?>> loader;
+        final long loadedAt;
+
+        Entry(List<?> rows, Set<String> tables, Supplier<List<?>> loader, long loadedAt) {
+            this.rows = rows;
+            this.tables = tables;
+            this.loader = loader;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    @lombok.Value
+    public static class Stats {
+        long hits;
+        long misses;
+        long loads; // 실제로 DB 조회를 실행한 횟수
+        long refreshes;
+        long evictions;
+        long invalidations;
+        long bypasses; // 쓰기 트랜잭션이라 캐시를 거치지 않은 횟수
+        int size;
+        long rows;
+    }
+}
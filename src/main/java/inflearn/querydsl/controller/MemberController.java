@@ -0,0 +1,53 @@
+package inflearn.querydsl.controller;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.QMemberDTO;
+import inflearn.querydsl.repository.MemberReactiveRepository;
+import inflearn.querydsl.scheduler.QueryPriority;
+import inflearn.querydsl.scheduler.QueryScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberController {
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberReactiveRepository memberReactiveRepository;
+    private final QueryScheduler queryScheduler;
+
+    // 블로킹 - 쿼리가 끝날 때까지 요청 스레드를 점유하고 결과 전체를 메모리에 올린다.
+    // 화면 조회 등급으로 실행 - 리포트 쿼리가 몰려도 커넥션을 먼저 받는다.
+    @GetMapping("/members")
+    public List<MemberDTO> members(@RequestParam(required = false) String teamName) {
+        return queryScheduler.fetch(QueryPriority.INTERACTIVE, queryFactory
+                .select(new QMemberDTO(member.username, member.age))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(teamNameEq(teamName))
+                .orderBy(member.id.asc()));
+    }
+
+    // 스트리밍 - R2DBC 로 읽은 row 를 SSE 로 하나씩 내려보내 결과 전체를 메모리에 올리지 않는다.
+    // 서블릿 MVC 위에서 동작하고 r2dbc-h2 도 내부적으로 블로킹이라 스트림이 끝날 때까지 스레드는 점유된다.
+    @GetMapping(value = "/reactive/members", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<MemberDTO> reactiveMembers(@RequestParam(required = false) String teamName) {
+        return memberReactiveRepository.streamMembers(teamName)
+                .limitRate(256); // 클라이언트가 느리면 DB 에서도 그만큼만 가져온다.
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return teamName != null ? team.name.eq(teamName) : null;
+    }
+}
@@ -0,0 +1,21 @@
+package inflearn.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MemberRankDTO {
+
+    private String username;
+    private int age;
+    private String teamName;
+    private long rank; // 팀 내 나이 순위 (1 부터)
+
+    public MemberRankDTO(String username, int age, String teamName, long rank) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+        this.rank = rank;
+    }
+}
@@ -0,0 +1,52 @@
+package inflearn.querydsl.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 오래 활동하지 않아 member 에서 옮겨진 회원 (MemberArchiver)
+ * archive_year(마지막 활동 연도)가 파티션 키 역할을 한다. - 연도 단위로 조회하거나 정리한다.
+ * H2 는 테이블 파티셔닝을 지원하지 않으므로 인덱스로 대신한다.
+ */
+@Entity
+@Table(name = "member_archive", indexes = {
+        @Index(name = "idx_member_archive_year", columnList = "archive_year"),
+        @Index(name = "idx_member_archive_username", columnList = "username"),
+        @Index(name = "idx_member_archive_team_id", columnList = "team_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class ArchivedMember {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id; // member 의 id 를 그대로 사용
+
+    private String username;
+
+    private int age;
+
+    // 팀은 연관관계 없이 id 만 보관 - 아카이브 조회 시 team 을 조인하지 않아도 된다.
+    @Column(name = "team_id")
+    private Long teamId;
+
+    private LocalDateTime lastActiveAt;
+
+    private LocalDateTime archivedAt;
+
+    @Column(name = "archive_year")
+    private int archiveYear;
+
+    public ArchivedMember(Member member, LocalDateTime archivedAt) {
+        this.id = member.getId();
+        this.username = member.getUsername();
+        this.age = member.getAge();
+        this.teamId = member.getTeam() != null ? member.getTeam().getId() : null; // 프록시 초기화 x
+        this.lastActiveAt = member.getLastActiveAt();
+        this.archivedAt = archivedAt;
+        this.archiveYear = (member.getLastActiveAt() != null ? member.getLastActiveAt() : archivedAt).getYear();
+    }
+}
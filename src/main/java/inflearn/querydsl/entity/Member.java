@@ -1,10 +1,18 @@
 package inflearn.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = { // Querydsl 조건에서 자주 사용되는 컬럼 - IndexAdvisor 결과와 동일하게 유지
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_id", columnList = "team_id"),
+        @Index(name = "idx_member_last_active_at", columnList = "last_active_at") // MemberArchiver 대상 조회
+})
 @Getter @Setter
 // JPA 는 기본 생성자가 있어야 한다. - Lombok 은 PROTECTED 까지 허용
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -19,6 +27,9 @@ public class Member {
 
     private int age;
 
+    // 마지막 활동 시각 - 오래 활동하지 않은 회원은 member_archive 로 옮긴다. (MemberArchiver)
+    private LocalDateTime lastActiveAt;
+
     // 연관관계의 주인
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
@@ -38,11 +49,31 @@ public class Member {
         if (team != null) {
             changeTeam(team);
         }
+        touch();
     }
 
+    /** 연관관계 편의 메서드
+     * 반대편(Team.members)은 이미 메모리에 올라와 있는 경우에만 맞춰 준다.
+     * team.getMembers().add(this) 처럼 컬렉션을 직접 다루면 팀이 프록시인 경우 팀을 조회하고,
+     * 이전 팀에서 remove 하면 소속 회원 전체를 로딩한다.
+     * 초기화되지 않은 프록시 팀은 건드리지 않는다. - 나중에 초기화되면 DB 에서 읽어 온다.
+     */
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team)) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        if (team != null && Hibernate.isInitialized(team)) {
+            team.addMember(this);
+        }
+        touch();
+    }
+
+    /** 활동 기록 - 로그인, 회원 정보 변경 시 호출한다.
+     * lastActiveAt 이 갱신되지 않으면 활동 중인 회원도 MemberArchiver 가 아카이브로 옮긴다.
+     */
+    public void touch() {
+        this.lastActiveAt = LocalDateTime.now();
     }
 }
 
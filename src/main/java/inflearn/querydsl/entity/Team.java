@@ -1,15 +1,19 @@
 package inflearn.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name")) // 세타 조인(member.username = team.name) 대상
 @Getter @Setter
 // JPA 는 기본 생성자가 있어야 한다. - Lombok 은 PROTECTED 까지 허용
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -28,6 +32,21 @@ public class Team {
     public Team(String name) {
         this.name = name;
     }
+
+    /** Member.changeTeam() 에서만 사용
+     * 로딩되지 않은 역방향 컬렉션(PersistentBag)의 add 는 Hibernate 가 큐에 쌓아 두었다가
+     * 컬렉션을 로딩할 때 반영하므로 SQL 이 실행되지 않는다.
+     */
+    void addMember(Member member) {
+        members.add(member);
+    }
+
+    // remove 는 큐에 쌓이지 않고 컬렉션 전체를 로딩하므로 이미 로딩된 경우에만 반영한다.
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
 
 
@@ -0,0 +1,104 @@
+package inflearn.querydsl.index;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.PathType;
+import com.querydsl.core.types.Predicate;
+import inflearn.querydsl.support.PathCollector;
+import lombok.Value;
+
+import javax.persistence.*;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Querydsl 쿼리에서 조건(where, on)과 조인 키로 사용된 컬럼을 모아 인덱스 DDL 을 만들어 준다.
+ * - 식별자(@Id) 컬럼은 PK 인덱스가 있으므로 제외
+ * - 연관관계 경로(member.team)는 FK 컬럼(team_id)으로 변환
+ */
+public class IndexAdvisor {
+
+    private final Set<IndexColumn> columns = new LinkedHashSet<>();
+
+    // 쿼리 전체 - from/join 대상, on 조건, where 조건
+    public IndexAdvisor register(QueryMetadata metadata) {
+        PathCollector.conditions(metadata).forEach(this::add);
+        return this;
+    }
+
+    // 조건만 따로 등록
+    public IndexAdvisor register(Predicate... predicates) {
+        for (Predicate predicate : predicates) {
+            PathCollector.of(predicate).forEach(this::add);
+        }
+        return this;
+    }
+
+    public Set<IndexColumn> getColumns() {
+        return Collections.unmodifiableSet(columns);
+    }
+
+    // create index idx_member_username on member (username)
+    public List<String> ddl() {
+        return columns.stream()
+                .map(c -> "create index " + c.getIndexName() + " on " + c.getTable() + " (" + c.getColumn() + ")")
+                .collect(Collectors.toList());
+    }
+
+    private void add(Path<?> path) {
+        PathMetadata metadata = path.getMetadata();
+        Path<?> parent = metadata.getParent();
+        if (parent == null || metadata.getPathType() != PathType.PROPERTY) return; // 루트(별칭) 경로는 컬럼이 아님
+
+        // member.team.name 처럼 연관관계를 따라간 경우 부모 경로의 타입(Team)이 테이블이 된다.
+        Class<?> entityType = parent.getType();
+        if (!entityType.isAnnotationPresent(Entity.class)) return;
+
+        Field field = findField(entityType, metadata.getName());
+        if (field == null || field.isAnnotationPresent(Id.class)) return;
+
+        columns.add(new IndexColumn(tableName(entityType), columnName(field)));
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {
+                // 상위 클래스에서 다시 찾는다
+            }
+        }
+        return null;
+    }
+
+    private static String tableName(Class<?> entityType) {
+        Table table = entityType.getAnnotation(Table.class);
+        if (table != null && !table.name().isEmpty()) return table.name();
+        return toSnakeCase(entityType.getSimpleName());
+    }
+
+    private static String columnName(Field field) {
+        JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+        if (joinColumn != null && !joinColumn.name().isEmpty()) return joinColumn.name();
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && !column.name().isEmpty()) return column.name();
+        return toSnakeCase(field.getName());
+    }
+
+    // 스프링 부트 기본 네이밍 전략(SpringPhysicalNamingStrategy)과 동일 - 카멜 케이스를 스네이크 케이스로 바꾼다
+    private static String toSnakeCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+    }
+
+    @Value
+    public static class IndexColumn {
+        String table;
+        String column;
+
+        public String getIndexName() {
+            return "idx_" + table + "_" + column;
+        }
+    }
+}
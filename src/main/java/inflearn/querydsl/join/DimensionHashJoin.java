@@ -0,0 +1,105 @@
+package inflearn.querydsl.join;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 작은 차원 테이블(Team)과의 세타 조인을 메모리 해시 조인으로 바꾼다.
+ * 1. 차원 테이블을 읽어 조인 키 -> 엔티티 Map 을 만든다. (build)
+ * 2. 사실 테이블(Member)은 factKey in (키 목록) 으로 조인될 row 만 읽는다. (probe)
+ * 3. 메모리에서 키로 짝을 맞춘다.
+ * 차원 테이블이 maxDimensionRows 보다 크면 원래 세타 조인(from(fact, dimension))으로 실행한다.
+ *
+ * 예) QuerydslBasicTest.theta_join
+ *     before : select(member, team).from(member, team).where(member.username.eq(team.name))
+ *     after  : dimensionHashJoin.join(member, member.username, team, team.name, null, null)
+ */
+@Component
+@RequiredArgsConstructor
+public class DimensionHashJoin {
+
+    static final int DEFAULT_MAX_DIMENSION_ROWS = 10_000;
+    static final int IN_CHUNK_SIZE = 1000;
+
+    private final JPAQueryFactory queryFactory;
+
+    public <F, D, K> List<Row<F, D>> join(EntityPath<F> fact, SimpleExpression<K> factKey,
+                                          EntityPath<D> dimension, SimpleExpression<K> dimensionKey,
+                                          Predicate factFilter, Predicate dimensionFilter) {
+        return join(fact, factKey, dimension, dimensionKey, factFilter, dimensionFilter, DEFAULT_MAX_DIMENSION_ROWS);
+    }
+
+    /** 내부 조인 - (사실, 차원) 쌍 목록. 조건(filter)이 없으면 null */
+    public <F, D, K> List<Row<F, D>> join(EntityPath<F> fact, SimpleExpression<K> factKey,
+                                          EntityPath<D> dimension, SimpleExpression<K> dimensionKey,
+                                          Predicate factFilter, Predicate dimensionFilter, int maxDimensionRows) {
+        // build - 한 건 더 읽어서 차원 테이블이 작은지 확인
+        List<Tuple> dimensionRows = queryFactory
+                .select(dimension, dimensionKey)
+                .from(dimension)
+                .where(dimensionFilter)
+                .limit(maxDimensionRows + 1L)
+                .fetch();
+        if (dimensionRows.size() > maxDimensionRows) {
+            return thetaJoin(fact, factKey, dimension, dimensionKey, factFilter, dimensionFilter);
+        }
+
+        Map<K, List<D>> table = new HashMap<>();
+        for (Tuple tuple : dimensionRows) {
+            K key = tuple.get(dimensionKey);
+            if (key == null) continue; // null 은 어떤 값과도 같지 않다.
+            table.computeIfAbsent(key, k -> new ArrayList<>()).add(tuple.get(dimension));
+        }
+        if (table.isEmpty()) return new ArrayList<>();
+
+        // probe - 키 목록을 사실 테이블 조건으로 내려보낸다.
+        List<K> keys = new ArrayList<>(table.keySet());
+        List<Row<F, D>> result = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += IN_CHUNK_SIZE) {
+            List<K> chunk = keys.subList(from, Math.min(from + IN_CHUNK_SIZE, keys.size()));
+            List<Tuple> factRows = queryFactory
+                    .select(fact, factKey)
+                    .from(fact)
+                    .where(factKey.in(chunk), factFilter)
+                    .fetch();
+            for (Tuple tuple : factRows) {
+                List<D> matched = table.get(tuple.get(factKey));
+                if (matched == null) continue; // DB 비교 규칙(대소문자 등)이 equals 와 다른 경우
+                for (D d : matched) {
+                    result.add(new Row<>(tuple.get(fact), d));
+                }
+            }
+        }
+        return result;
+    }
+
+    private <F, D, K> List<Row<F, D>> thetaJoin(EntityPath<F> fact, SimpleExpression<K> factKey,
+                                                EntityPath<D> dimension, SimpleExpression<K> dimensionKey,
+                                                Predicate factFilter, Predicate dimensionFilter) {
+        List<Tuple> rows = queryFactory
+                .select(fact, dimension)
+                .from(fact, dimension)
+                .where(factKey.eq(dimensionKey), factFilter, dimensionFilter)
+                .fetch();
+
+        List<Row<F, D>> result = new ArrayList<>(rows.size());
+        for (Tuple tuple : rows) {
+            result.add(new Row<>(tuple.get(fact), tuple.get(dimension)));
+        }
+        return result;
+    }
+
+    @Value
+    public static class Row<F, D> {
+        F fact;
+        D dimension;
+    }
+}
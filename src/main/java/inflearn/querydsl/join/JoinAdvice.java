@@ -0,0 +1,10 @@
+package inflearn.querydsl.join;
+
+import lombok.Value;
+
+@Value
+public class JoinAdvice {
+    JoinIssue issue;
+    String join;    // 대상 조인 - 예) left join team
+    String message; // 원인과 대안
+}
@@ -0,0 +1,200 @@
+package inflearn.querydsl.join;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import inflearn.querydsl.support.PathCollector;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+/**
+ * Querydsl 쿼리의 조인을 검사한다.
+ * - 카테시안 곱 / 세타 조인 : 연관관계(FK) 없이 조인하면 인덱스를 타지 못하고 모든 조합을 비교할 수 있다.
+ *   조인 대상이 작은 테이블(Team)이면 DimensionHashJoin 으로 메모리에서 조인한다.
+ * - 외부 조인 -> 내부 조인 : where 조건이 조인 대상 컬럼의 null 을 걸러내면 결과가 같으므로 내부 조인으로 바꾼다. (toInnerJoins)
+ * - 페치 조인 + 페이징 : 컬렉션 페치 조인이면 Hibernate 가 전체를 읽어 메모리에서 페이징한다.
+ */
+public class JoinAdvisor {
+
+    // 피연산자가 null 이면 결과가 true 가 될 수 없는 연산 - 외부 조인으로 채워진 null row 를 버린다.
+    private static final Set<Operator> NULL_REJECTING = Set.of(
+            Ops.EQ, Ops.NE, Ops.LT, Ops.GT, Ops.LOE, Ops.GOE, Ops.BETWEEN, Ops.IN,
+            Ops.LIKE, Ops.LIKE_IC, Ops.STARTS_WITH, Ops.STARTS_WITH_IC, Ops.ENDS_WITH, Ops.ENDS_WITH_IC,
+            Ops.STRING_CONTAINS, Ops.STRING_CONTAINS_IC, Ops.EQ_IGNORE_CASE, Ops.IS_NOT_NULL);
+
+    public List<JoinAdvice> inspect(QueryMetadata metadata) {
+        List<JoinAdvice> advices = new ArrayList<>();
+        List<Predicate> conjuncts = conjuncts(metadata.getWhere());
+        List<JoinExpression> joins = metadata.getJoins();
+
+        for (int i = 0; i < joins.size(); i++) {
+            JoinExpression join = joins.get(i);
+            Path<?> alias = alias(join);
+
+            if (join.getType() == JoinType.DEFAULT && i > 0) {
+                // from(member, team) - where 에서 이전 엔티티와 연결하는 조건이 있는지
+                Set<Path<?>> previous = new HashSet<>();
+                for (int j = 0; j < i; j++) previous.add(alias(joins.get(j)));
+                boolean linked = conjuncts.stream().anyMatch(c -> {
+                    Set<Path<?>> roots = roots(c);
+                    return roots.contains(alias) && roots.stream().anyMatch(previous::contains);
+                });
+                advices.add(linked
+                        ? new JoinAdvice(JoinIssue.THETA_JOIN, describe(join),
+                                "연관관계 없이 where 로 조인 - 조인 대상이 작으면 DimensionHashJoin 으로 메모리에서 조인")
+                        : new JoinAdvice(JoinIssue.CARTESIAN_PRODUCT, describe(join),
+                                "조인 조건 없음 - 모든 조합(카테시안 곱)을 만든다."));
+            } else if (join.getType() != JoinType.DEFAULT && !isAssociation(join)) {
+                advices.add(new JoinAdvice(JoinIssue.THETA_JOIN, describe(join),
+                        "연관관계 없는 엔티티를 on 으로 조인 - 조인 대상이 작으면 DimensionHashJoin 으로 메모리에서 조인"));
+            }
+
+            if (join.getType() == JoinType.LEFTJOIN && isNullRejected(alias, conjuncts)) {
+                advices.add(new JoinAdvice(JoinIssue.OUTER_JOIN_CAN_BE_INNER, describe(join),
+                        "where 조건이 " + alias + " 의 null 을 걸러내므로 내부 조인과 결과가 같다. - toInnerJoins()"));
+            }
+
+            if (join.hasFlag(JPAQueryMixin.FETCH) && hasPaging(metadata)) {
+                boolean collection = isCollection(join);
+                advices.add(new JoinAdvice(JoinIssue.FETCH_JOIN_WITH_PAGING, describe(join), collection
+                        ? "컬렉션 페치 조인 + 페이징 - 전체를 읽어 메모리에서 페이징한다. 페치 조인을 빼고 batch fetch 사용"
+                        : "페치 조인 + 페이징 - 조인으로 row 수가 늘지 않는지 확인"));
+            }
+        }
+        return advices;
+    }
+
+    /** where 조건 때문에 내부 조인과 결과가 같은 외부 조인을 내부 조인으로 바꾼 쿼리
+     * 내부 조인이면 DB 가 조인 순서를 자유롭게 정할 수 있다. (작은 쪽을 먼저 읽기)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> JPAQuery<T> toInnerJoins(JPAQuery<T> query, EntityManager em) {
+        QueryMetadata source = query.getMetadata();
+        List<Predicate> conjuncts = conjuncts(source.getWhere());
+
+        DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.setValidate(false);
+        for (JoinExpression join : source.getJoins()) {
+            boolean convert = join.getType() == JoinType.LEFTJOIN && isNullRejected(alias(join), conjuncts);
+            metadata.addJoin(convert ? JoinType.INNERJOIN : join.getType(), join.getTarget());
+            if (join.getCondition() != null) metadata.addJoinCondition(join.getCondition());
+            for (JoinFlag flag : join.getFlags()) metadata.addJoinFlag(flag);
+        }
+        metadata.setDistinct(source.isDistinct());
+        metadata.setProjection(source.getProjection());
+        if (source.getWhere() != null) metadata.addWhere(source.getWhere());
+        source.getGroupBy().forEach(metadata::addGroupBy);
+        if (source.getHaving() != null) metadata.addHaving(source.getHaving());
+        source.getOrderBy().forEach(metadata::addOrderBy);
+        metadata.setModifiers(source.getModifiers());
+        source.getParams().forEach((param, value) -> metadata.setParam((ParamExpression) param, value));
+        source.getFlags().forEach(metadata::addFlag);
+
+        return new JPAQuery<>(em, metadata);
+    }
+
+    // join(member.team, team) -> team, from(member) -> member
+    private static Path<?> alias(JoinExpression join) {
+        Expression<?> target = join.getTarget();
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            return (Path<?>) ((Operation<?>) target).getArg(1);
+        }
+        return (Path<?>) target;
+    }
+
+    // join(member.team, team) 처럼 연관관계 경로로 조인하는지
+    private static boolean isAssociation(JoinExpression join) {
+        Expression<?> target = join.getTarget();
+        if (!(target instanceof Operation) || ((Operation<?>) target).getOperator() != Ops.ALIAS) return false;
+        Expression<?> path = ((Operation<?>) target).getArg(0);
+        return path instanceof Path && ((Path<?>) path).getMetadata().getParent() != null;
+    }
+
+    private static boolean isCollection(JoinExpression join) {
+        Expression<?> target = join.getTarget();
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            return ((Operation<?>) target).getArg(0) instanceof CollectionExpression;
+        }
+        return false;
+    }
+
+    private static boolean hasPaging(QueryMetadata metadata) {
+        return metadata.getModifiers().getLimit() != null || metadata.getModifiers().getOffset() != null;
+    }
+
+    // and 로 묶인 조건 중 하나라도 alias 컬럼에 대해 null 을 걸러내는지
+    private static boolean isNullRejected(Path<?> alias, List<Predicate> conjuncts) {
+        for (Predicate conjunct : conjuncts) {
+            if (conjunct instanceof Operation
+                    && NULL_REJECTING.contains(((Operation<?>) conjunct).getOperator())
+                    && roots(conjunct).contains(alias)
+                    && !containsNullSafeOperation(conjunct)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // coalesce, case 등이 있으면 null 이어도 조건을 만족할 수 있다.
+    private static boolean containsNullSafeOperation(Expression<?> expr) {
+        if (expr instanceof Operation) {
+            Operator operator = ((Operation<?>) expr).getOperator();
+            if (operator == Ops.COALESCE || operator == Ops.CASE || operator == Ops.IS_NULL || operator == Ops.OR) {
+                return true;
+            }
+            for (Expression<?> arg : ((Operation<?>) expr).getArgs()) {
+                if (containsNullSafeOperation(arg)) return true;
+            }
+        }
+        return expr instanceof TemplateExpression; // 알 수 없는 함수는 보수적으로
+    }
+
+    private static List<Predicate> conjuncts(Predicate where) {
+        List<Predicate> result = new ArrayList<>();
+        if (where == null) return result;
+        if (where instanceof Operation && ((Operation<?>) where).getOperator() == Ops.AND) {
+            for (Expression<?> arg : ((Operation<?>) where).getArgs()) {
+                result.addAll(conjuncts((Predicate) arg));
+            }
+        } else {
+            result.add(where);
+        }
+        return result;
+    }
+
+    // 조건이 참조하는 루트 별칭 - member.team.name 의 루트는 member
+    private static Set<Path<?>> roots(Expression<?> expr) {
+        Set<Path<?>> roots = new HashSet<>();
+        for (Path<?> path : PathCollector.of(expr)) {
+            roots.add(path.getRoot());
+        }
+        return roots;
+    }
+
+    private static String describe(JoinExpression join) {
+        String type;
+        switch (join.getType()) {
+            case DEFAULT:
+                type = "from";
+                break;
+            case LEFTJOIN:
+                type = "left join";
+                break;
+            case RIGHTJOIN:
+                type = "right join";
+                break;
+            case FULLJOIN:
+                type = "full join";
+                break;
+            default:
+                type = "join";
+        }
+        return type + " " + join.getTarget();
+    }
+}
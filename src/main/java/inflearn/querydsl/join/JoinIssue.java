@@ -0,0 +1,11 @@
+package inflearn.querydsl.join;
+
+/**
+ * JoinAdvisor 가 찾는 비효율적인 조인
+ */
+public enum JoinIssue {
+    CARTESIAN_PRODUCT,      // from(member, team) - 두 엔티티를 연결하는 조건이 없다.
+    THETA_JOIN,             // from(member, team).where(member.username.eq(team.name)), leftJoin(team).on(...) - 연관관계(FK) 없이 값으로 조인
+    OUTER_JOIN_CAN_BE_INNER, // leftJoin(member.team, team).where(team.name.eq("teamA")) - where 조건이 null 인 row 를 어차피 버린다.
+    FETCH_JOIN_WITH_PAGING  // fetchJoin() + limit/offset - 컬렉션 페치 조인이면 전체를 읽어 메모리에서 페이징한다.
+}
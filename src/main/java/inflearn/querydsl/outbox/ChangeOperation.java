@@ -0,0 +1,5 @@
+package inflearn.querydsl.outbox;
+
+public enum ChangeOperation {
+    INSERT, UPDATE, DELETE
+}
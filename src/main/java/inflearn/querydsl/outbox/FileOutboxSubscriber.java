@@ -0,0 +1,57 @@
+package inflearn.querydsl.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 변경 이벤트를 로컬 파일에 한 줄씩(JSON Lines) 추가한다.
+ * outbox.file-log 에 경로를 지정하면 활성화된다.
+ */
+@Component
+@ConditionalOnProperty("outbox.file-log")
+public class FileOutboxSubscriber implements OutboxSubscriber {
+
+    private final Path file;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    public FileOutboxSubscriber(@Value("${outbox.file-log}") String file) {
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public synchronized void onEvents(List<OutboxEvent> events) {
+        List<String> lines = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            lines.add(toJson(event));
+        }
+
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String toJson(OutboxEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("outbox 이벤트 변환 실패 : " + event, e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package inflearn.querydsl.outbox;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.EntityPathBase;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 아웃박스에 기록되는 벌크 연산
+ * 벌크 update/delete 는 영속성 컨텍스트와 Hibernate 이벤트를 거치지 않으므로
+ * 대상 id 를 먼저 조회해 row 단위 이벤트로 펼쳐서 기록한다.
+ *
+ * 예) outboxBulkOperations.update(member, member.id, member.age.lt(28),
+ *                                 clause -> clause.set(member.username, "비회원"));
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxBulkOperations {
+
+    static final int IN_CHUNK_SIZE = 1000;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    /** 벌크 update - 실행 후 변경된 상태를 UPDATE 이벤트로 기록
+     * 벌크 연산 후에는 영속성 컨텍스트가 DB 와 달라지므로 flush, clear 한다. (QuerydslBasicTest.bulkUpdate2 참고)
+     */
+    @Transactional
+    public <T> long update(EntityPathBase<T> entity, NumberPath<Long> id, Predicate where,
+                           Consumer<JPAUpdateClause> set) {
+        em.flush();
+        List<Long> ids = queryFactory.select(id).from(entity).where(where)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE) // 조회한 뒤 다른 트랜잭션이 조건을 바꾸지 못하게
+                .fetch();
+        if (ids.isEmpty()) return 0;
+
+        // 이벤트를 기록할 id 로만 갱신한다. (delete 와 동일)
+        JPAUpdateClause clause = queryFactory.update(entity).where(id.in(ids));
+        set.accept(clause);
+        long count = clause.execute();
+        em.clear();
+
+        record(entity, id, ids, ChangeOperation.UPDATE);
+        return count;
+    }
+
+    /** 벌크 delete - 삭제 전 상태를 DELETE 이벤트로 기록
+     * 이벤트를 삭제 전에 기록하므로 대상 row 에 먼저 쓰기 락을 건다.
+     * 같은 row 를 바꾸는 다른 트랜잭션의 이벤트가 커밋 순서와 다른 id 를 받지 않게 한다. (OutboxEvent 참고)
+     */
+    @Transactional
+    public <T> long delete(EntityPathBase<T> entity, NumberPath<Long> id, Predicate where) {
+        em.flush();
+        List<Long> ids = queryFactory.select(id).from(entity).where(where)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+        if (ids.isEmpty()) return 0;
+
+        record(entity, id, ids, ChangeOperation.DELETE);
+        long count = queryFactory.delete(entity).where(id.in(ids)).execute();
+        em.clear();
+        return count;
+    }
+
+    private <T> void record(EntityPathBase<T> entity, NumberPath<Long> id, List<Long> ids, ChangeOperation operation) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entity.getType());
+
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+            List<T> rows = queryFactory.selectFrom(entity).where(id.in(chunk)).fetch();
+            for (T row : rows) {
+                OutboxWriter.write(session, persister,
+                        persister.getIdentifier(row, session), persister.getPropertyValues(row), operation);
+            }
+            em.clear(); // 기록용으로 읽은 엔티티는 다시 쓰지 않는다.
+        }
+    }
+}
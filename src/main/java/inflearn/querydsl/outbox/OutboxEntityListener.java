@@ -0,0 +1,59 @@
+package inflearn.querydsl.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Member, Team 의 insert/update/delete 를 아웃박스에 기록하는 Hibernate 이벤트 리스너
+ * 세터, changeTeam() 등으로 바뀐 엔티티는 flush 시점의 변경 감지로 여기에 들어온다.
+ * 벌크 연산(update, delete 절)은 이벤트가 발생하지 않으므로 OutboxBulkOperations 를 사용해야 한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxEntityListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void register() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (!OutboxWriter.isTracked(event.getPersister())) return;
+        OutboxWriter.write(event.getSession(), event.getPersister(),
+                event.getId(), event.getState(), ChangeOperation.INSERT);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!OutboxWriter.isTracked(event.getPersister())) return;
+        OutboxWriter.write(event.getSession(), event.getPersister(),
+                event.getId(), event.getState(), ChangeOperation.UPDATE);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!OutboxWriter.isTracked(event.getPersister())) return;
+        OutboxWriter.write(event.getSession(), event.getPersister(),
+                event.getId(), event.getDeletedState(), ChangeOperation.DELETE);
+    }
+
+    // 커밋 후가 아니라 flush 시점(같은 트랜잭션)에 기록한다.
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
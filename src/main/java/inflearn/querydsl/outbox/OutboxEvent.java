@@ -0,0 +1,44 @@
+package inflearn.querydsl.outbox;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Member, Team 변경 기록 (트랜잭셔널 아웃박스)
+ * 변경과 같은 트랜잭션에서 저장되므로 커밋된 변경만 남는다.
+ *
+ * id 는 IDENTITY 라서 커밋이 아니라 insert(flush) 시점에 정해진다.
+ * - 같은 aggregate : 변경한 row 의 쓰기 락을 잡은 뒤에 기록하므로 id 순서 = 커밋 순서
+ * - 다른 aggregate : 먼저 id 를 받은 트랜잭션이 늦게 커밋할 수 있어 id 순서와 커밋 순서가 다르다.
+ *   relay 는 커밋되지 않은 id 보다 큰 id 를 발행하지 않으므로 전달 순서는 커밋 순서와 같다. (OutboxInFlight 참고)
+ * - 롤백된 트랜잭션의 id 는 다시 사용되지 않으므로 id 에는 빈 번호가 생긴다.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_event_published", columnList = "published, id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class OutboxEvent {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String aggregateType; // Member, Team
+
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeOperation operation;
+
+    @Column(length = 4000)
+    private String payload; // 변경 후 상태(JSON) - DELETE 는 삭제 전 상태
+
+    private LocalDateTime createdAt;
+
+    private boolean published;
+}
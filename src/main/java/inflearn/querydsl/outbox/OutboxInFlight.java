@@ -0,0 +1,62 @@
+package inflearn.querydsl.outbox;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 기록은 했지만 아직 커밋/롤백되지 않은 아웃박스 이벤트 id (이 프로세스 기준)
+ * IDENTITY id 는 insert 시점에 정해지므로 작은 id 가 큰 id 보다 늦게 커밋될 수 있다.
+ * relay 는 watermark 보다 작은 id 만 발행한다. watermark 아래의 id 는 모두 커밋 또는 롤백이 끝났으므로
+ * id 순서로 발행하면 커밋 순서가 뒤집히지 않는다.
+ *
+ * - insert 와 등록은 읽기 락, watermark 계산은 쓰기 락 안에서 한다.
+ *   watermark 를 계산하는 순간에는 id 를 받고 아직 등록하지 못한 insert 가 없다.
+ * - 다른 프로세스가 같은 테이블에 쓰는 경우는 다루지 않는다.
+ */
+final class OutboxInFlight {
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final ConcurrentSkipListMap<Long, Object> inFlight = new ConcurrentSkipListMap<>(); // id -> 기록한 세션, id 순서
+    private static final AtomicLong lastAssigned = new AtomicLong(); // 이 프로세스가 받은 가장 큰 id
+
+    private OutboxInFlight() {
+    }
+
+    /** insert 를 실행하고 받은 id 를 진행 중으로 등록한다. */
+    static long record(Object owner, LongSupplier insert) {
+        lock.readLock().lock();
+        try {
+            long id = insert.getAsLong();
+            inFlight.put(id, owner);
+            lastAssigned.accumulateAndGet(id, Math::max);
+            return id;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 트랜잭션이 끝나면(커밋, 롤백 모두) 호출 */
+    static void complete(long id) {
+        inFlight.remove(id);
+    }
+
+    /** 이 값보다 작은 id 만 발행할 수 있다.
+     * owner 가 기록한 id 는 같은 트랜잭션의 relay 에게 보이므로 막지 않는다.
+     * @param committedMaxId 아직 이 프로세스에서 기록한 적이 없을 때 사용할 DB 의 최대 id (재시작 전에 기록된 이벤트)
+     */
+    static long watermark(Object owner, LongSupplier committedMaxId) {
+        long committedMax = lastAssigned.get() == 0 ? committedMaxId.getAsLong() : 0;
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Object> entry : inFlight.entrySet()) {
+                if (entry.getValue() != owner) return entry.getKey();
+            }
+            return Math.max(lastAssigned.get(), committedMax) + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package inflearn.querydsl.outbox;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static inflearn.querydsl.outbox.QOutboxEvent.outboxEvent;
+
+/**
+ * 아직 발행되지 않은 아웃박스 이벤트를 id 순서대로 묶어서 구독자에게 전달한다.
+ * 구독자가 모두 성공하면 같은 트랜잭션에서 published = true 로 바꾼다.
+ * 구독자가 실패하면 롤백되어 다음 주기에 같은 묶음을 다시 전달한다.
+ *
+ * 순서 보장 - 아직 커밋되지 않은 가장 작은 id(watermark) 보다 작은 id 만 발행한다. (OutboxInFlight 참고)
+ * 작은 id 가 늦게 커밋되면 그 뒤의 이벤트는 커밋될 때까지 기다렸다가 함께 발행되므로 커밋 순서대로 전달된다.
+ *
+ * 중복 발행 방지 - 묶음을 select ... for update 로 잠그고, published = false 인 row 만 먼저 차지(claim)한 뒤 전달한다.
+ * 주기 실행과 직접 호출한 relay() 가 겹치면 뒤의 쪽은 앞의 커밋을 기다리고, 이미 발행된 row 를 만나면 롤백한다.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final List<OutboxSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Consumer<Set<String>> commitListener = this::afterCommit;
+
+    public OutboxRelay(EntityManager em,
+                       JPAQueryFactory queryFactory,
+                       PlatformTransactionManager transactionManager,
+                       ObjectProvider<OutboxSubscriber> subscribers,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        subscribers.orderedStream().forEach(this.subscribers::add);
+        OutboxWriter.addCommitListener(commitListener);
+    }
+
+    @PreDestroy
+    public void close() {
+        OutboxWriter.removeCommitListener(commitListener);
+    }
+
+    // 프로세스 내부 구독자 등록 - 빈으로 등록된 구독자는 자동으로 추가된다.
+    public void subscribe(OutboxSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(OutboxSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void scheduledRelay() {
+        try {
+            while (relay() == batchSize) {
+                // 밀린 이벤트가 있으면 바로 다음 묶음을 발행
+            }
+        } catch (RuntimeException e) {
+            log.warn("outbox relay 실패 - 다음 주기에 다시 시도", e);
+        }
+    }
+
+    /** 한 묶음 발행 - 발행한 이벤트 수를 반환
+     * 호출한 쪽에 트랜잭션이 있으면 참여한다.
+     */
+    public int relay() {
+        Integer published = transactionTemplate.execute(status -> {
+            long watermark = OutboxInFlight.watermark(em.unwrap(SessionImplementor.class), this::maxId);
+            List<OutboxEvent> events = queryFactory
+                    .selectFrom(outboxEvent)
+                    .where(outboxEvent.published.isFalse(),
+                            outboxEvent.id.lt(watermark))
+                    .orderBy(outboxEvent.id.asc())
+                    .limit(batchSize)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .fetch();
+            if (events.isEmpty()) return 0;
+
+            // 구독자에게 전달하기 전에 차지한다. - 구독자가 실패하면 함께 롤백된다.
+            List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+            long claimed = queryFactory
+                    .update(outboxEvent)
+                    .set(outboxEvent.published, true)
+                    .where(outboxEvent.id.in(ids),
+                            outboxEvent.published.isFalse())
+                    .execute();
+            if (claimed != ids.size()) {
+                throw new IllegalStateException("다른 relay 가 먼저 발행한 이벤트가 있음 - 다음 주기에 다시 시도");
+            }
+
+            List<OutboxEvent> unmodifiable = Collections.unmodifiableList(events);
+            for (OutboxSubscriber subscriber : subscribers) {
+                subscriber.onEvents(unmodifiable);
+            }
+            return events.size();
+        });
+        return published != null ? published : 0;
+    }
+
+    // 변경을 기록한 트랜잭션이 커밋된 직후 - 구독자 실패가 커밋한 쪽으로 전파되지 않게 한다.
+    private void afterCommit(Set<String> aggregateTypes) {
+        for (OutboxSubscriber subscriber : subscribers) {
+            try {
+                subscriber.afterCommit(aggregateTypes);
+            } catch (RuntimeException e) {
+                log.warn("outbox afterCommit 실패 : {}", subscriber, e);
+            }
+        }
+    }
+
+    private long maxId() {
+        Long max = queryFactory.select(outboxEvent.id.max()).from(outboxEvent).fetchOne();
+        return max != null ? max : 0;
+    }
+}
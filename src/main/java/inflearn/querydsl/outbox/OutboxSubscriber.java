@@ -0,0 +1,22 @@
+package inflearn.querydsl.outbox;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * OutboxRelay 가 발행하는 변경 이벤트를 받는 구독자
+ * events 는 id 오름차순이며, 실패하면 같은 이벤트가 다시 전달될 수 있다(at-least-once).
+ * 전달 순서는 커밋 순서와 같다. (OutboxRelay 참고) 다만 롤백된 트랜잭션의 id 는 비어 있으므로
+ * "여기까지 반영했다"를 연속된 id 로 판단하면 안 된다.
+ */
+public interface OutboxSubscriber {
+
+    void onEvents(List<OutboxEvent> events);
+
+    /** 이 프로세스에서 변경을 기록한 트랜잭션이 커밋된 직후 호출 - 발행 주기를 기다리지 않고 바로 반응할 때 사용
+     * aggregateTypes : 그 트랜잭션이 바꾼 aggregate 종류 (Member, Team)
+     * 다른 프로세스의 변경은 오지 않으므로 onEvents 를 대신하지 않는다.
+     */
+    default void afterCommit(Set<String> aggregateTypes) {
+    }
+}
@@ -0,0 +1,146 @@
+package inflearn.querydsl.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.Type;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * outbox_event 에 변경 한 건을 기록한다.
+ * flush 도중(Hibernate 이벤트)에도 호출되므로 영속성 컨텍스트를 거치지 않고
+ * 같은 세션의 JDBC 커넥션(= 같은 트랜잭션)으로 직접 insert 한다.
+ */
+final class OutboxWriter {
+
+    private static final Set<Class<?>> TRACKED = Set.of(Member.class, Team.class);
+
+    private static final String INSERT_SQL = "insert into outbox_event " +
+            "(aggregate_type, aggregate_id, operation, payload, created_at, published) values (?, ?, ?, ?, ?, false)";
+
+    private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    // 트랜잭션에 바인딩되는 "이 트랜잭션이 기록한 aggregate 종류" 의 키
+    private static final Object COMMITTED_TYPES_KEY = new Object();
+
+    // 커밋 후 호출할 리스너 - OutboxRelay 가 등록한다. (테스트처럼 컨텍스트가 여러 개면 모두 호출된다.)
+    private static final Set<Consumer<Set<String>>> commitListeners = new CopyOnWriteArraySet<>();
+
+    private OutboxWriter() {
+    }
+
+    static void addCommitListener(Consumer<Set<String>> listener) {
+        commitListeners.add(listener);
+    }
+
+    static void removeCommitListener(Consumer<Set<String>> listener) {
+        commitListeners.remove(listener);
+    }
+
+    static boolean isTracked(EntityPersister persister) {
+        return TRACKED.contains(persister.getMappedClass());
+    }
+
+    static void write(SessionImplementor session, EntityPersister persister,
+                      Object id, Object[] state, ChangeOperation operation) {
+        String aggregateType = persister.getMappedClass().getSimpleName();
+        String payload = payload(session, persister, id, state);
+
+        // 받은 id 는 트랜잭션이 끝날 때까지 진행 중으로 남는다. - relay 가 이 id 보다 큰 id 를 먼저 발행하지 않는다.
+        long eventId = OutboxInFlight.record(session, () -> session.doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, aggregateType);
+                ps.setLong(2, ((Number) id).longValue());
+                ps.setString(3, operation.name());
+                ps.setString(4, payload);
+                ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    return keys.getLong(1);
+                }
+            }
+        }));
+        session.getActionQueue().registerProcess(
+                (AfterTransactionCompletionProcess) (success, s) -> OutboxInFlight.complete(eventId));
+        collectForCommit(aggregateType);
+    }
+
+    // 트랜잭션마다 기록한 aggregate 종류를 모아 두었다가 커밋 직후 한 번 알린다.
+    @SuppressWarnings("unchecked")
+    private static void collectForCommit(String aggregateType) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        Set<String> types = (Set<String>) TransactionSynchronizationManager.getResource(COMMITTED_TYPES_KEY);
+        if (types == null) {
+            Set<String> committed = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(COMMITTED_TYPES_KEY, committed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    Set<String> unmodifiable = Collections.unmodifiableSet(committed);
+                    commitListeners.forEach(listener -> listener.accept(unmodifiable));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(COMMITTED_TYPES_KEY);
+                }
+            });
+            types = committed;
+        }
+        types.add(aggregateType);
+    }
+
+    // {"id":1,"age":10,"teamId":1,"username":"member1"} - 컬렉션은 제외, 연관 엔티티는 id 로 기록
+    private static String payload(SessionImplementor session, EntityPersister persister, Object id, Object[] state) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put(persister.getIdentifierPropertyName(), id);
+
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            if (types[i].isCollectionType()) continue;
+            if (types[i].isEntityType()) {
+                values.put(names[i] + "Id", idOf(session, state[i]));
+            } else {
+                values.put(names[i], state[i]);
+            }
+        }
+
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("outbox payload 변환 실패 : " + values, e);
+        }
+    }
+
+    // 프록시는 초기화하지 않고 id 만 꺼낸다.
+    private static Object idOf(SessionImplementor session, Object entity) {
+        if (entity == null) return null;
+        if (entity instanceof HibernateProxy) {
+            return ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
+        }
+        return session.getContextEntityIdentifier(entity);
+    }
+}
@@ -0,0 +1,47 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLQuery;
+import inflearn.querydsl.sql.MemberAgeRows;
+import inflearn.querydsl.sql.SMember;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 나이 위주 조회를 박싱 없이 읽는다.
+ * SQL 은 Querydsl(querydsl-sql)로 만들고, ResultSet 에서 rs.getInt() 로 바로 MemberAgeRows 에 담는다.
+ * JdbcTemplate 은 트랜잭션 안에서 JPA 와 같은 커넥션을 사용한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberAgeRowRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Configuration querydslSqlConfiguration;
+
+    /** 조건에 맞는 회원 이름, 나이 - 조건은 SMember.member 로 만든다. 조건이 없으면 전체
+     * 예) findUsernameAndAge(SMember.member.age.goe(20))
+     * SQL : select member.username, member.age from member member where member.age >= ? order by member.member_id asc
+     */
+    public MemberAgeRows findUsernameAndAge(Predicate... predicates) {
+        SMember m = SMember.member;
+
+        SQLBindings bindings = new SQLQuery<Void>(querydslSqlConfiguration.getTemplates())
+                .select(m.username, m.age)
+                .from(m)
+                .where(predicates)
+                .orderBy(m.id.asc())
+                .getSQL();
+
+        return jdbcTemplate.query(bindings.getSQL(), rs -> {
+            MemberAgeRows rows = new MemberAgeRows(1024);
+            while (rs.next()) {
+                rows.add(rs.getString(1), rs.getInt(2));
+            }
+            return rows;
+        }, bindings.getNullFriendlyBindings().toArray());
+    }
+}
@@ -0,0 +1,94 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.MemberSearchCondition;
+import inflearn.querydsl.sql.SMember;
+import inflearn.querydsl.sql.SMemberArchive;
+import inflearn.querydsl.sql.STeam;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * member + member_archive 를 함께 조회 (ArchiveScope.ALL)
+ * JPQL 은 union 을 지원하지 않으므로 JPASQLQuery(네이티브 SQL)를 사용한다.
+ * 정렬과 페이징도 union 결과에 SQL 로 적용한다. 페이징할 때는 각 select 도 offset + limit 건까지만 읽는다.
+ * SQL : (select member.member_id, member.username, member.age from member member
+ *          left join team team on member.team_id = team.id where ... order by member.member_id asc limit ?)
+ *       union all
+ *       (select member_archive.member_id, member_archive.username, member_archive.age from member_archive member_archive
+ *          left join team team on member_archive.team_id = team.id where ... order by member_archive.member_id asc limit ?)
+ *       order by member_id asc limit ? offset ?
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberArchiveRepository {
+
+    // union 결과의 id 컬럼 - 두 테이블 모두 member_id (아카이브는 member 의 id 를 그대로 사용하므로 겹치지 않는다.)
+    private static final NumberPath<Long> UNION_ID = Expressions.numberPath(Long.class, "member_id");
+
+    private final EntityManager em;
+    private final Configuration querydslSqlConfiguration;
+
+    public List<MemberDTO> searchWithArchive(MemberSearchCondition condition) {
+        return searchWithArchive(condition, QueryModifiers.EMPTY);
+    }
+
+    // page : offset, limit - id 오름차순
+    public List<MemberDTO> searchWithArchive(MemberSearchCondition condition, QueryModifiers page) {
+        SMember m = SMember.member;
+        SMemberArchive a = SMemberArchive.memberArchive;
+        STeam t = STeam.team;
+
+        SQLQuery<Tuple> hot = SQLExpressions
+                .select(m.id, m.username, m.age)
+                .from(m)
+                .leftJoin(t).on(m.teamId.eq(t.id))
+                .where(conditions(condition, m.username, m.age, t));
+        SQLQuery<Tuple> archive = SQLExpressions
+                .select(a.id, a.username, a.age)
+                .from(a)
+                .leftJoin(t).on(a.teamId.eq(t.id))
+                .where(conditions(condition, a.username, a.age, t));
+
+        if (page.getLimit() != null) {
+            // 결과의 앞 offset + limit 건은 각 테이블의 앞 offset + limit 건 안에 있다.
+            long rows = page.getLimit() + (page.getOffset() != null ? page.getOffset() : 0);
+            hot.orderBy(m.id.asc()).limit(rows);
+            archive.orderBy(a.id.asc()).limit(rows);
+        }
+
+        List<Tuple> result = new JPASQLQuery<Void>(em, querydslSqlConfiguration)
+                .restrict(page) // 네이티브 쿼리의 setFirstResult/setMaxResults - union 뒤에 limit, offset 이 붙는다.
+                .unionAll(hot, archive)
+                .orderBy(UNION_ID.asc())
+                .fetch();
+
+        return result.stream()
+                .map(tuple -> new MemberDTO(tuple.get(1, String.class), tuple.get(2, Number.class).intValue()))
+                .collect(Collectors.toList());
+    }
+
+    private BooleanBuilder conditions(MemberSearchCondition condition,
+                                      StringPath username, NumberPath<Integer> age, STeam t) {
+        BooleanBuilder builder = new BooleanBuilder();
+        if (condition.getUsername() != null) builder.and(username.eq(condition.getUsername()));
+        if (condition.getTeamName() != null) builder.and(t.name.eq(condition.getTeamName()));
+        if (condition.getAgeGoe() != null) builder.and(age.goe(condition.getAgeGoe()));
+        if (condition.getAgeLoe() != null) builder.and(age.loe(condition.getAgeLoe()));
+        return builder;
+    }
+}
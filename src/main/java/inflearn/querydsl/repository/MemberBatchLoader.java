@@ -0,0 +1,140 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.NonUniqueResultException;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.QMemberDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static inflearn.querydsl.entity.QMember.member;
+
+/**
+ * username 단건 조회를 모아서 한 번에 조회하는 배치 로더 (DataLoader 방식)
+ * - windowMillis 동안 들어온 요청을 모아 where member.username in (...) 쿼리 한 번으로 처리
+ * - in 절은 MAX_IN_SIZE 단위로 나누고, 파라미터 개수는 hibernate.query.in_clause_parameter_padding 으로
+ *   2의 거듭제곱에 맞춰 같은 SQL 을 재사용한다.
+ * - 결과는 username 별로 나누어 각 요청자에게 돌려준다. 없으면 null, 여러 건이면 fetchOne() 과 같이 NonUniqueResultException
+ */
+@Component
+public class MemberBatchLoader {
+
+    static final int MAX_IN_SIZE = 128; // 2의 거듭제곱 - 패딩해도 더 커지지 않는다.
+
+    private final JPAQueryFactory queryFactory;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService dispatcher;
+
+    private final Object lock = new Object();
+    private Map<String, CompletableFuture<MemberDTO>> pending = new LinkedHashMap<>();
+    private boolean dispatchScheduled;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    @Autowired
+    public MemberBatchLoader(JPAQueryFactory queryFactory) {
+        this(queryFactory, 2, 1024);
+    }
+
+    public MemberBatchLoader(JPAQueryFactory queryFactory, long windowMillis, int maxBatchSize) {
+        this.queryFactory = queryFactory;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<MemberDTO> load(String username) {
+        Objects.requireNonNull(username, "username");
+        synchronized (lock) {
+            // 같은 username 이 이미 대기 중이면 같은 결과를 공유한다.
+            CompletableFuture<MemberDTO> future = pending.computeIfAbsent(username, k -> new CompletableFuture<>());
+
+            if (pending.size() >= maxBatchSize) {
+                Map<String, CompletableFuture<MemberDTO>> batch = pending;
+                pending = new LinkedHashMap<>();
+                dispatcher.execute(() -> dispatch(batch));
+            } else if (!dispatchScheduled) {
+                dispatchScheduled = true;
+                dispatcher.schedule(this::dispatchPending, windowMillis, TimeUnit.MILLISECONDS);
+            }
+            return future;
+        }
+    }
+
+    // 대기 중인 요청을 윈도우가 끝나기를 기다리지 않고 호출한 스레드에서 바로 조회한다.
+    public void flush() {
+        dispatchPending();
+    }
+
+    // 실행된 in 쿼리 수
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    private void dispatchPending() {
+        Map<String, CompletableFuture<MemberDTO>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            dispatchScheduled = false;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Map<String, CompletableFuture<MemberDTO>> batch) {
+        if (batch.isEmpty()) return; // flush() 로 이미 처리된 윈도우
+        List<String> usernames = new ArrayList<>(batch.keySet());
+        for (int from = 0; from < usernames.size(); from += MAX_IN_SIZE) {
+            List<String> chunk = usernames.subList(from, Math.min(from + MAX_IN_SIZE, usernames.size()));
+            try {
+                complete(chunk, fetch(chunk), batch);
+            } catch (RuntimeException e) {
+                chunk.forEach(username -> batch.get(username).completeExceptionally(e));
+            }
+        }
+    }
+
+    private Map<String, List<MemberDTO>> fetch(List<String> usernames) {
+        roundTrips.incrementAndGet();
+        return queryFactory
+                .select(new QMemberDTO(member.username, member.age))
+                .from(member)
+                .where(member.username.in(usernames))
+                .fetch()
+                .stream()
+                .collect(Collectors.groupingBy(MemberDTO::getUsername));
+    }
+
+    private void complete(List<String> usernames,
+                          Map<String, List<MemberDTO>> result,
+                          Map<String, CompletableFuture<MemberDTO>> batch) {
+        for (String username : usernames) {
+            List<MemberDTO> found = result.getOrDefault(username, Collections.emptyList());
+            CompletableFuture<MemberDTO> future = batch.get(username);
+            if (found.size() > 1) {
+                future.completeExceptionally(new NonUniqueResultException());
+            } else {
+                future.complete(found.isEmpty() ? null : found.get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.QMember;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import static inflearn.querydsl.entity.QMember.member;
+
+@Repository
+@RequiredArgsConstructor
+public class MemberQueryRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    // SQL : select 1 from member where ... limit 1
+    public boolean exists(Predicate... predicates) {
+        return QuerydslSupport.exists(queryFactory, member, predicates);
+    }
+
+    /** where 절에서 사용하는 (상관) 서브 쿼리
+     * 예) where(memberExists(memberSub, memberSub.team.eq(team), memberSub.age.gt(30)))
+     * SQL : exists (select 1 from member memberSub where ...)
+     */
+    public static BooleanExpression memberExists(QMember memberSub, Predicate... predicates) {
+        return QuerydslSupport.exists(memberSub, predicates);
+    }
+}
@@ -0,0 +1,137 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLExpressions;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.MemberRankDTO;
+import inflearn.querydsl.sql.SMember;
+import inflearn.querydsl.sql.STeam;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 윈도우 함수와 WITH(CTE) 를 사용하는 순위/집계 쿼리
+ * JPQL 은 윈도우 함수를 지원하지 않으므로 JPASQLQuery(네이티브 SQL)를 사용한다.
+ * - 상관 서브 쿼리처럼 member 를 다시 읽지 않고 한 번의 스캔으로 순위와 집계를 구한다.
+ * - 네이티브 쿼리의 숫자 타입은 DB 컬럼 타입을 따라가므로(BIGINT -> BigInteger) Number 로 받아 변환한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberRankingRepository {
+
+    private final EntityManager em;
+    private final Configuration querydslSqlConfiguration;
+
+    /** 팀별 나이가 많은 순서로 상위 n 명
+     * SQL : with ranked as (select member.username as username, member.age as age, team.name as team_name,
+     *                              rank() over (partition by member.team_id order by member.age desc) as rnk
+     *                       from member member join team team on member.team_id = team.id)
+     *       select ranked.username, ranked.age, ranked.team_name, ranked.rnk
+     *       from ranked where ranked.rnk <= ?
+     */
+    public List<MemberRankDTO> findTopOldestPerTeam(int n) {
+        SMember m = SMember.member;
+        STeam t = STeam.team;
+
+        PathBuilder<Tuple> ranked = new PathBuilder<>(Tuple.class, "ranked");
+        StringPath username = ranked.getString("username");
+        NumberPath<Integer> age = ranked.getNumber("age", Integer.class);
+        StringPath teamName = ranked.getString("team_name");
+        NumberPath<Long> rnk = ranked.getNumber("rnk", Long.class);
+
+        List<Tuple> result = new JPASQLQuery<Void>(em, querydslSqlConfiguration)
+                .with(ranked, SQLExpressions
+                        .select(m.username.as("username"),
+                                m.age.as("age"),
+                                t.name.as("team_name"),
+                                SQLExpressions.rank().over()
+                                        .partitionBy(m.teamId)
+                                        .orderBy(m.age.desc())
+                                        .as("rnk"))
+                        .from(m)
+                        .join(t).on(m.teamId.eq(t.id)))
+                .select(username, age, teamName, rnk)
+                .from(ranked)
+                .where(rnk.loe((long) n))
+                .orderBy(teamName.asc(), rnk.asc(), username.asc())
+                .fetch();
+
+        return result.stream()
+                .map(tuple -> new MemberRankDTO(
+                        tuple.get(username),
+                        tuple.get(1, Number.class).intValue(),
+                        tuple.get(teamName),
+                        tuple.get(3, Number.class).longValue()))
+                .collect(Collectors.toList());
+    }
+
+    /** 나이가 평균 이상인 회원 - QuerydslBasicTest.subQueryGoe 의 단일 스캔 버전
+     * SQL : with stats as (select member.username as username, member.age as age,
+     *                             avg(cast(member.age as double)) over () as avg_age from member member)
+     *       select stats.username, stats.age from stats where stats.age >= stats.avg_age
+     */
+    public List<MemberDTO> findAgeGoeAverage() {
+        SMember m = SMember.member;
+
+        PathBuilder<Tuple> stats = new PathBuilder<>(Tuple.class, "stats");
+        StringPath username = stats.getString("username");
+        NumberPath<Integer> age = stats.getNumber("age", Integer.class);
+        NumberPath<Double> avgAge = stats.getNumber("avg_age", Double.class);
+
+        List<Tuple> result = new JPASQLQuery<Void>(em, querydslSqlConfiguration)
+                .with(stats, SQLExpressions
+                        .select(m.username.as("username"),
+                                m.age.as("age"),
+                                SQLExpressions.avg(m.age.castToNum(Double.class)).over().as("avg_age"))
+                        .from(m))
+                .select(username, age)
+                .from(stats)
+                .where(age.goe(avgAge))
+                .orderBy(age.asc())
+                .fetch();
+
+        return toMemberDTOs(result, username);
+    }
+
+    /** 나이가 가장 많은 회원 - QuerydslBasicTest.subQuery 의 단일 스캔 버전
+     * SQL : with stats as (select ..., max(member.age) over () as max_age from member member)
+     *       select stats.username, stats.age from stats where stats.age = stats.max_age
+     */
+    public List<MemberDTO> findOldest() {
+        SMember m = SMember.member;
+
+        PathBuilder<Tuple> stats = new PathBuilder<>(Tuple.class, "stats");
+        StringPath username = stats.getString("username");
+        NumberPath<Integer> age = stats.getNumber("age", Integer.class);
+        NumberPath<Integer> maxAge = stats.getNumber("max_age", Integer.class);
+
+        List<Tuple> result = new JPASQLQuery<Void>(em, querydslSqlConfiguration)
+                .with(stats, SQLExpressions
+                        .select(m.username.as("username"),
+                                m.age.as("age"),
+                                SQLExpressions.max(m.age).over().as("max_age"))
+                        .from(m))
+                .select(username, age)
+                .from(stats)
+                .where(age.eq(maxAge))
+                .orderBy(username.asc())
+                .fetch();
+
+        return toMemberDTOs(result, username);
+    }
+
+    private static List<MemberDTO> toMemberDTOs(List<Tuple> result, StringPath username) {
+        return result.stream()
+                .map(tuple -> new MemberDTO(tuple.get(username), tuple.get(1, Number.class).intValue()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLQuery;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.sql.SMember;
+import inflearn.querydsl.sql.STeam;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+
+/**
+ * R2DBC 를 사용하는 스트리밍 회원 조회
+ * SQL 은 Querydsl(querydsl-sql)로 만들고 실행만 R2DBC 커넥션으로 한다.
+ * - 구독자가 요청한 만큼만 row 를 내려보낸다(backpressure). 결과 전체를 메모리에 올리지 않는다.
+ * - 스레드는 절약되지 않는다. r2dbc-h2 는 내부적으로 H2 의 블로킹 API 를 호출하므로 조회하는 동안 구독한 스레드를 점유한다.
+ * - 커넥션 풀은 빈으로 등록하지 않고 여기서만 사용한다.
+ *   ConnectionFactory 빈이 있으면 스프링 부트가 JDBC DataSource 를 만들지 않는다.
+ */
+@Repository
+public class MemberReactiveRepository {
+
+    private final ConnectionPool connectionPool;
+    private final Configuration querydslSqlConfiguration;
+
+    public MemberReactiveRepository(@Value("${spring.r2dbc.url}") String url,
+                                    @Value("${spring.r2dbc.username:}") String username,
+                                    @Value("${spring.r2dbc.password:}") String password,
+                                    Configuration querydslSqlConfiguration) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(
+                ConnectionPoolConfiguration.builder(ConnectionFactories.get(options)).build());
+        this.querydslSqlConfiguration = querydslSqlConfiguration;
+    }
+
+    /** 회원 이름, 나이 스트리밍 - teamName 이 null 이면 전체
+     * SQL : select member.username, member.age from member member
+     *       left join team team on member.team_id = team.id
+     *       where team.name = ? order by member.member_id asc
+     */
+    public Flux<MemberDTO> streamMembers(String teamName) {
+        SMember m = SMember.member;
+        STeam t = STeam.team;
+
+        // 커넥션 없이 SQL 과 바인딩 값만 만든다.
+        SQLBindings bindings = new SQLQuery<Void>(querydslSqlConfiguration.getTemplates())
+                .select(m.username, m.age)
+                .from(m)
+                .leftJoin(t).on(m.teamId.eq(t.id))
+                .where(teamNameEq(t, teamName))
+                .orderBy(m.id.asc())
+                .getSQL();
+
+        return Flux.usingWhen(
+                connectionPool.create(),
+                connection -> execute(connection, bindings),
+                Connection::close);
+    }
+
+    private Flux<MemberDTO> execute(Connection connection, SQLBindings bindings) {
+        Statement statement = connection.createStatement(bindings.getSQL());
+        List<Object> params = bindings.getNullFriendlyBindings();
+        for (int i = 0; i < params.size(); i++) {
+            statement.bind(i, params.get(i));
+        }
+
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map((row, metadata) ->
+                        new MemberDTO(row.get(0, String.class), row.get(1, Integer.class))));
+    }
+
+    private BooleanExpression teamNameEq(STeam t, String teamName) {
+        return teamName != null ? t.name.eq(teamName) : null;
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+}
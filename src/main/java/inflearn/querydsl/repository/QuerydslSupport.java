@@ -0,0 +1,41 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+/** 리포지토리에서 공통으로 사용하는 Querydsl 쿼리 */
+public final class QuerydslSupport {
+
+    private QuerydslSupport() {
+    }
+
+    /** 조건을 만족하는 엔티티가 존재하는지
+     * fetchCount() > 0 은 조건에 맞는 모든 row 를 세고,
+     * selectFrom(entity).fetchFirst() 는 엔티티 전체 컬럼을 읽어 영속성 컨텍스트에 올린다.
+     * SQL : select 1 from entity where ... limit 1 - 첫 번째 row 를 찾는 즉시 멈춘다.
+     */
+    public static boolean exists(JPAQueryFactory queryFactory, EntityPath<?> entity, Predicate... predicates) {
+        Integer fetchOne = queryFactory
+                .selectOne()
+                .from(entity)
+                .where(predicates)
+                .fetchFirst();
+
+        return fetchOne != null;
+    }
+
+    /** where 절에서 사용하는 (상관) 서브 쿼리
+     * 예) where(exists(memberSub, memberSub.team.eq(team), memberSub.age.gt(30)))
+     * SQL : exists (select 1 from member memberSub where ...)
+     */
+    public static BooleanExpression exists(EntityPath<?> entity, Predicate... predicates) {
+        return JPAExpressions
+                .selectOne()
+                .from(entity)
+                .where(predicates)
+                .exists();
+    }
+}
@@ -0,0 +1,39 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.QMember;
+import inflearn.querydsl.entity.Team;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+import static inflearn.querydsl.entity.QTeam.team;
+import static inflearn.querydsl.repository.MemberQueryRepository.memberExists;
+
+@Repository
+@RequiredArgsConstructor
+public class TeamQueryRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    // SQL : select 1 from team where ... limit 1
+    public boolean exists(Predicate... predicates) {
+        return QuerydslSupport.exists(queryFactory, team, predicates);
+    }
+
+    /** ageGt 보다 나이가 많은 회원이 한 명이라도 있는 팀
+     * 팀마다 회원 수를 세지 않고 exists 상관 서브 쿼리로 첫 번째 회원만 확인한다.
+     */
+    public List<Team> findTeamsHavingMemberOlderThan(int ageGt) {
+        QMember memberSub = new QMember("memberSub");
+
+        return queryFactory
+                .selectFrom(team)
+                .where(memberExists(memberSub,
+                        memberSub.team.eq(team),
+                        memberSub.age.gt(ageGt)))
+                .fetch();
+    }
+}
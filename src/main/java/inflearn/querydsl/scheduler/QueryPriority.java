@@ -0,0 +1,27 @@
+package inflearn.querydsl.scheduler;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 쿼리 우선순위 등급과 기본 제한값
+ * 동시 실행 수의 합(6 + 2 + 1)이 커넥션 풀 크기(Hikari 기본 10)보다 작아야 다른 등급이 굶지 않는다.
+ * 값은 query-scheduler.<등급>.* 설정으로 바꿀 수 있다. 예) query-scheduler.report.max-concurrency=4
+ */
+@Getter
+@RequiredArgsConstructor
+public enum QueryPriority {
+
+    INTERACTIVE(6, 200, 500, 2_000),   // 화면 조회 - 짧게 기다리고 짧게 실행
+    REPORT(2, 20, 5_000, 30_000),      // 집계, 세타 조인 리포트
+    BATCH(1, 5, 30_000, 120_000);      // 백그라운드 작업
+
+    private final int maxConcurrency;     // 동시에 실행할 수 있는 쿼리 수
+    private final int maxQueue;           // 실행을 기다릴 수 있는 요청 수 - 넘으면 바로 거절
+    private final long admissionTimeoutMs; // 대기 시간 - 넘으면 거절
+    private final int statementTimeoutMs; // 쿼리 실행 시간 제한 (javax.persistence.query.timeout)
+
+    String propertyPrefix() {
+        return "query-scheduler." + name().toLowerCase() + ".";
+    }
+}
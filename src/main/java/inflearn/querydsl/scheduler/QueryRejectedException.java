@@ -0,0 +1,16 @@
+package inflearn.querydsl.scheduler;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 대기열이 가득 찼거나 대기 시간 안에 실행되지 못한 쿼리
+ * 컨트롤러에서 던져지면 503 으로 응답한다. - 클라이언트는 잠시 후 다시 시도
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class QueryRejectedException extends RuntimeException {
+
+    public QueryRejectedException(String message) {
+        super(message);
+    }
+}
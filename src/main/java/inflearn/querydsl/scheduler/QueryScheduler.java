@@ -0,0 +1,159 @@
+package inflearn.querydsl.scheduler;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * JPAQueryFactory 로 만든 쿼리를 우선순위 등급별로 제한해서 실행한다.
+ * - 등급마다 동시 실행 수(세마포어, 먼저 온 순서)와 대기열 길이를 따로 두어
+ *   리포트 쿼리가 몰려도 화면 조회가 커넥션을 기다리지 않게 한다.
+ * - 대기열이 가득 찼거나 admissionTimeout 안에 차례가 오지 않으면 QueryRejectedException
+ * - JPAQuery 는 등급별 statement timeout 을 힌트로 지정한다.
+ *
+ * 예) queryScheduler.fetch(QueryPriority.REPORT, queryFactory.select(member).from(member, team)...)
+ */
+@Slf4j
+@Component
+public class QueryScheduler {
+
+    static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private final Map<QueryPriority, Lane> lanes = new EnumMap<>(QueryPriority.class);
+
+    public QueryScheduler(Environment environment) {
+        for (QueryPriority priority : QueryPriority.values()) {
+            String prefix = priority.propertyPrefix();
+            lanes.put(priority, new Lane(priority,
+                    environment.getProperty(prefix + "max-concurrency", Integer.class, priority.getMaxConcurrency()),
+                    environment.getProperty(prefix + "max-queue", Integer.class, priority.getMaxQueue()),
+                    environment.getProperty(prefix + "admission-timeout-ms", Long.class, priority.getAdmissionTimeoutMs()),
+                    environment.getProperty(prefix + "statement-timeout-ms", Integer.class, priority.getStatementTimeoutMs())));
+        }
+    }
+
+    public <T> List<T> fetch(QueryPriority priority, JPAQuery<T> query) {
+        return execute(priority, withTimeout(priority, query)::fetch);
+    }
+
+    public <T> T fetchOne(QueryPriority priority, JPAQuery<T> query) {
+        return execute(priority, withTimeout(priority, query)::fetchOne);
+    }
+
+    /** 등급의 statement timeout 을 힌트로 지정 - execute() 로 묶은 쿼리에 사용한다. */
+    public <T> JPAQuery<T> withTimeout(QueryPriority priority, JPAQuery<T> query) {
+        query.setHint(QUERY_TIMEOUT_HINT, lanes.get(priority).statementTimeoutMs);
+        return query;
+    }
+
+    /** 여러 쿼리를 묶어서 실행 - statement timeout 은 호출한 쪽에서 지정한다. (withTimeout)
+     * 같은 등급의 fetch() 를 안에서 다시 호출하지 않는다. - 세마포어는 재진입되지 않는다.
+     */
+    public <T> T execute(QueryPriority priority, Supplier<T> work) {
+        Lane lane = lanes.get(priority);
+        lane.admit();
+        try {
+            return work.get();
+        } finally {
+            lane.release();
+        }
+    }
+
+    public Stats getStats(QueryPriority priority) {
+        return lanes.get(priority).stats();
+    }
+
+    private static final class Lane {
+        final QueryPriority priority;
+        final Semaphore permits;
+        final int maxQueue;
+        final long admissionTimeoutNanos;
+        final int statementTimeoutMs;
+
+        final AtomicInteger waiting = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicLong admitted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Lane(QueryPriority priority, int maxConcurrency, int maxQueue, long admissionTimeoutMs, int statementTimeoutMs) {
+            this.priority = priority;
+            this.permits = new Semaphore(maxConcurrency, true);
+            this.maxQueue = maxQueue;
+            this.admissionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMs);
+            this.statementTimeoutMs = statementTimeoutMs;
+        }
+
+        void admit() {
+            // 여유가 있고 먼저 기다리는 요청이 없으면 대기열을 거치지 않는다.
+            if (!permits.hasQueuedThreads() && permits.tryAcquire()) {
+                onAdmitted(0);
+                return;
+            }
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                throw reject("대기열 초과");
+            }
+
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("대기 중 인터럽트");
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!acquired) throw reject("대기 시간 초과");
+            onAdmitted(System.nanoTime() - start);
+        }
+
+        void release() {
+            running.decrementAndGet();
+            permits.release();
+        }
+
+        private void onAdmitted(long waitNanos) {
+            running.incrementAndGet();
+            admitted.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+
+        private QueryRejectedException reject(String reason) {
+            rejected.incrementAndGet();
+            log.debug("query rejected : {} - {}", priority, reason);
+            return new QueryRejectedException(priority + " 쿼리 거절 : " + reason);
+        }
+
+        Stats stats() {
+            long count = admitted.get();
+            return new Stats(waiting.get(), running.get(), count, rejected.get(),
+                    count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get() / count),
+                    TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+        }
+    }
+
+    @Value
+    public static class Stats {
+        int queueDepth;  // 지금 기다리는 요청 수
+        int running;
+        long admitted;
+        long rejected;
+        long averageWaitMicros;
+        long maxWaitMicros;
+    }
+}
@@ -0,0 +1,34 @@
+package inflearn.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import static inflearn.querydsl.entity.QMember.member;
+
+/**
+ * 회원 활동 기록 - 로그인한 회원의 lastActiveAt 을 갱신한다.
+ * 엔티티의 변경 감지로 update 되므로 아웃박스에도 기록된다.
+ * 아카이브된 회원은 member 에 없으므로 로그인할 수 없다. (MemberArchiver)
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class MemberActivityService {
+
+    private final JPAQueryFactory queryFactory;
+
+    // 로그인 - 회원이 없으면 false
+    public boolean login(String username) {
+        Member found = queryFactory
+                .selectFrom(member)
+                .where(member.username.eq(username))
+                .fetchFirst();
+        if (found == null) return false;
+
+        found.touch();
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package inflearn.querydsl.service;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.StringExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.cache.QueryResultCache;
+import inflearn.querydsl.scheduler.QueryPriority;
+import inflearn.querydsl.scheduler.QueryScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+
+/**
+ * 리포트용 집계 쿼리 - 결과는 QueryResultCache 에 캐시된다.
+ * 캐시에 없을 때는 QueryScheduler 의 REPORT 등급으로 실행해서 화면 조회(INTERACTIVE)의 커넥션을 빼앗지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberReportService {
+
+    private final JPAQueryFactory queryFactory;
+    private final QueryResultCache queryResultCache;
+    private final QueryScheduler queryScheduler;
+
+    /** 나이대별 회원 수 - QuerydslBasicTest.complexCase 의 CaseBuilder 분류
+     * 회원마다 한 row 를 가져와 세지 않고 DB 에서 나이대별로 묶어서 센다.
+     * Hibernate(HQLTemplates)는 case 안의 상수를 리터럴로 만들기 때문에 select 와 group by 의 식이 같다.
+     * SQL : select case when ... end, count(member_id) from member group by case when ... end
+     */
+    public Map<String, Long> countByAgeBracket() {
+        StringExpression ageBracket = new CaseBuilder()
+                .when(member.age.between(0, 20)).then("0~20살")
+                .when(member.age.between(21, 30)).then("21~30살")
+                .otherwise("기타");
+
+        List<Tuple> result = fetchReport(queryFactory
+                .select(ageBracket, member.count())
+                .from(member)
+                .groupBy(ageBracket));
+
+        Map<String, Long> counts = new TreeMap<>();
+        for (Tuple tuple : result) {
+            counts.put(tuple.get(ageBracket), tuple.get(member.count()));
+        }
+        return counts;
+    }
+
+    // 팀별 평균 나이 - QuerydslBasicTest.group
+    public Map<String, Double> averageAgeByTeam() {
+        List<Tuple> result = fetchReport(queryFactory
+                .select(team.name, member.age.avg())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .orderBy(team.name.asc()));
+
+        Map<String, Double> averages = new LinkedHashMap<>();
+        for (Tuple tuple : result) {
+            averages.put(tuple.get(team.name), tuple.get(member.age.avg()));
+        }
+        return averages;
+    }
+
+    private <T> List<T> fetchReport(JPAQuery<T> query) {
+        return queryResultCache.fetch(query, q -> queryScheduler.fetch(QueryPriority.REPORT, q));
+    }
+}
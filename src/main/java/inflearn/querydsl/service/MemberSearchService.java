@@ -0,0 +1,155 @@
+package inflearn.querydsl.service;
+
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.archive.ArchiveScope;
+import inflearn.querydsl.bitmap.MemberBitmapIndex;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.MemberSearchCondition;
+import inflearn.querydsl.dto.QMemberDTO;
+import inflearn.querydsl.repository.MemberArchiveRepository;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 검색 - 나이/팀 조건은 비트맵 인덱스를 먼저 사용하고,
+ * 인덱스가 최신이 아니거나 인덱스로 처리할 수 없는 조건(username)이 있으면 DB 로 조회한다.
+ * 기본 조회 범위는 member(HOT) 이고, 아카이브된 회원까지 보려면 ArchiveScope.ALL 을 지정한다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class MemberSearchService {
+
+    static final int IN_CHUNK_SIZE = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberBitmapIndex memberBitmapIndex;
+    private final MemberArchiveRepository memberArchiveRepository;
+
+    private final AtomicLong indexHits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public long count(MemberSearchCondition condition) {
+        if (canUseIndex(condition)) {
+            indexHits.incrementAndGet();
+            return memberBitmapIndex.count(condition.getAgeGoe(), condition.getAgeLoe(), condition.getTeamName());
+        }
+
+        fallbacks.incrementAndGet();
+        Long count = queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(conditions(condition))
+                .fetchOne();
+        return count != null ? count : 0;
+    }
+
+    public List<MemberDTO> search(MemberSearchCondition condition) {
+        if (canUseIndex(condition)) {
+            indexHits.incrementAndGet();
+            Roaring64NavigableMap ids = memberBitmapIndex.match(
+                    condition.getAgeGoe(), condition.getAgeLoe(), condition.getTeamName());
+            return findByIds(ids.toArray());
+        }
+
+        fallbacks.incrementAndGet();
+        return queryFactory
+                .select(new QMemberDTO(member.username, member.age))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(conditions(condition))
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    public List<MemberDTO> search(MemberSearchCondition condition, ArchiveScope scope) {
+        if (scope == ArchiveScope.ALL) {
+            return memberArchiveRepository.searchWithArchive(condition);
+        }
+        return search(condition);
+    }
+
+    /** 페이징 - id 오름차순으로 page(offset, limit) 만큼만 DB 에서 읽는다. */
+    public List<MemberDTO> search(MemberSearchCondition condition, ArchiveScope scope, QueryModifiers page) {
+        if (scope == ArchiveScope.ALL) {
+            return memberArchiveRepository.searchWithArchive(condition, page);
+        }
+        return queryFactory
+                .select(new QMemberDTO(member.username, member.age))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(conditions(condition))
+                .orderBy(member.id.asc())
+                .restrict(page)
+                .fetch();
+    }
+
+    public long getIndexHits() {
+        return indexHits.get();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    // 인덱스 사용 가능 여부 - 반영하지 않은 변경이 있으면 DB 에서 읽는다. (MemberBitmapIndex.isFresh 참고)
+    private boolean canUseIndex(MemberSearchCondition condition) {
+        if (condition.getUsername() != null) return false;
+        return memberBitmapIndex.isFresh();
+    }
+
+    // 비트맵의 id 는 정렬되어 있다.
+    private List<MemberDTO> findByIds(long[] ids) {
+        List<MemberDTO> result = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += IN_CHUNK_SIZE) {
+            List<Long> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(from + IN_CHUNK_SIZE, ids.length); i++) {
+                chunk.add(ids[i]);
+            }
+            result.addAll(queryFactory
+                    .select(new QMemberDTO(member.username, member.age))
+                    .from(member)
+                    .where(member.id.in(chunk))
+                    .orderBy(member.id.asc())
+                    .fetch());
+        }
+        return result;
+    }
+
+    private BooleanExpression[] conditions(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return username != null ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return teamName != null ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
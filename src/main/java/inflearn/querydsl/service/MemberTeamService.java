@@ -0,0 +1,34 @@
+package inflearn.querydsl.service;
+
+import inflearn.querydsl.entity.Team;
+import inflearn.querydsl.outbox.OutboxBulkOperations;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import static inflearn.querydsl.entity.QMember.member;
+
+/**
+ * 회원 팀 이동
+ * 여러 명을 옮길 때 엔티티마다 changeTeam() 을 호출하면 회원을 모두 조회하고 row 마다 UPDATE 한다.
+ * SQL : update member set team_id = ? where member_id in (...) - 한 번에 옮기고 아웃박스에도 기록한다.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class MemberTeamService {
+
+    private final OutboxBulkOperations outboxBulkOperations;
+
+    /** 벌크 이동 - 실행 후 영속성 컨텍스트는 비워진다. (OutboxBulkOperations.update 참고) */
+    public long changeTeam(Collection<Long> memberIds, Team team) {
+        if (memberIds.isEmpty()) return 0;
+        return outboxBulkOperations.update(member, member.id, member.id.in(memberIds),
+                clause -> clause
+                        .set(member.team, team)
+                        .set(member.lastActiveAt, LocalDateTime.now())); // Member.changeTeam() 과 동일하게 활동 기록
+    }
+}
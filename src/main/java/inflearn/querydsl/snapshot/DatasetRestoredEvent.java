@@ -0,0 +1,16 @@
+package inflearn.querydsl.snapshot;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+
+/**
+ * 스냅샷 복원 완료 이벤트
+ * 복원은 JDBC 로 직접 쓰기 때문에 아웃박스에 기록되지 않는다.
+ * DB 를 복사해 둔 쪽(MemberBitmapIndex 등)은 이 이벤트를 받아 다시 만들어야 한다.
+ */
+@Value
+public class DatasetRestoredEvent {
+    Path file;
+    DatasetSnapshot.RestoreMode mode;
+}
@@ -0,0 +1,349 @@
+package inflearn.querydsl.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static inflearn.querydsl.snapshot.SnapshotColumn.Type.*;
+
+/**
+ * team, member, member_archive 테이블을 컬럼 단위 바이너리 파일로 덤프/복원한다.
+ * - 파일은 메모리 매핑(MappedByteBuffer)으로 WINDOW_SIZE 씩 매핑해서 읽고 쓴다. 2GB 를 넘는 파일도 다룰 수 있다.
+ * - 덤프는 id 순서로 BATCH_SIZE 건씩 읽어서 블록 하나로 쓰고, 복원은 블록 하나씩 JDBC 배치 insert 한다.
+ *   힙에는 한 페이지만 올라간다. 페이지마다 따로 조회하므로 일관된 스냅샷이 필요하면 호출한 쪽에서 트랜잭션을 건다.
+ * - 호출한 쪽의 트랜잭션이 있으면 같은 커넥션을 사용한다.
+ * - 복원은 아웃박스를 거치지 않으므로 끝나면 DatasetRestoredEvent 를 발행한다.
+ *
+ * 파일 구조 : [MAGIC][VERSION][테이블 수] ( [메타 길이][테이블 이름][컬럼 수]([컬럼 이름][타입])* [블록]* [0] )*
+ * 블록 : [row 수][바이트 수][컬럼 데이터]* - 한 블록 안에서는 컬럼 단위로 저장한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatasetSnapshot {
+
+    static final int MAGIC = 0x51534E50; // "QSNP"
+    static final int VERSION = 2;
+    static final int BATCH_SIZE = 5_000; // 덤프 페이지, 파일 블록, 복원 배치 insert 의 row 수
+    static final long WINDOW_SIZE = 64L * 1024 * 1024; // 한 번에 매핑하는 파일 크기
+
+    // FK 때문에 team 을 먼저 복원한다. 컬럼은 엔티티 매핑과 동일하게 유지
+    private static final List<TableSpec> TABLES = List.of(
+            new TableSpec("team", List.of(
+                    new ColumnSpec("id", LONG),
+                    new ColumnSpec("name", STRING))),
+            new TableSpec("member", List.of(
+                    new ColumnSpec("member_id", LONG),
+                    new ColumnSpec("username", STRING),
+                    new ColumnSpec("age", INT),
+                    new ColumnSpec("team_id", LONG),
+                    new ColumnSpec("last_active_at", TIMESTAMP))),
+            new TableSpec("member_archive", List.of(
+                    new ColumnSpec("member_id", LONG),
+                    new ColumnSpec("username", STRING),
+                    new ColumnSpec("age", INT),
+                    new ColumnSpec("team_id", LONG),
+                    new ColumnSpec("last_active_at", TIMESTAMP),
+                    new ColumnSpec("archived_at", TIMESTAMP),
+                    new ColumnSpec("archive_year", INT))));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Stats dump(Path file) throws IOException {
+        long start = System.nanoTime();
+
+        long rows = 0;
+        long bytes;
+        try (MappedWriter out = new MappedWriter(file)) {
+            out.reserve(Integer.BYTES * 3).putInt(MAGIC).putInt(VERSION).putInt(TABLES.size());
+
+            for (TableSpec spec : TABLES) {
+                byte[] meta = spec.encodeMeta();
+                out.reserve(Integer.BYTES + meta.length).putInt(meta.length).put(meta);
+
+                // 한 페이지씩 읽어서 블록 하나로 쓴다. - 테이블 전체를 힙에 올리지 않는다.
+                Long after = null;
+                List<SnapshotColumn> page;
+                while ((page = read(spec, after)).get(0).rows() > 0) {
+                    int pageRows = page.get(0).rows();
+                    long blockSize = page.stream().mapToLong(SnapshotColumn::encodedSize).sum();
+                    ByteBuffer buf = out.reserve(Integer.BYTES * 2 + blockSize);
+                    buf.putInt(pageRows).putInt((int) blockSize);
+                    for (SnapshotColumn column : page) {
+                        column.encode(buf);
+                    }
+                    rows += pageRows;
+                    after = page.get(0).longAt(pageRows - 1);
+                }
+                out.reserve(Integer.BYTES).putInt(0); // 테이블의 끝
+            }
+            bytes = out.position();
+        }
+
+        return new Stats(rows, bytes, elapsedMillis(start));
+    }
+
+    /** 스냅샷을 현재 DB 에 insert
+     * 같은 id 가 있으면 실패한다. 복원 후 persist 를 하려면 alignSequence() 로 시퀀스를 맞춘다.
+     */
+    public Stats restore(Path file) throws IOException {
+        return restore(file, RestoreMode.INSERT);
+    }
+
+    /** MERGE - 같은 id 가 있으면 스냅샷 값으로 덮어쓴다. (H2 : merge into ... key (id))
+     * 테스트 픽스처처럼 같은 데이터를 반복해서 복원할 때 사용한다.
+     */
+    public Stats restore(Path file, RestoreMode mode) throws IOException {
+        long start = System.nanoTime();
+
+        long rows = 0;
+        long size;
+        try (MappedReader in = new MappedReader(file)) {
+            size = in.size();
+            ByteBuffer header = in.require(Integer.BYTES * 3);
+            if (header.getInt() != MAGIC) throw new IOException("스냅샷 파일이 아닙니다 : " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("지원하지 않는 스냅샷 버전 : " + version);
+
+            int tableCount = header.getInt();
+            for (int t = 0; t < tableCount; t++) {
+                int metaLength = in.require(Integer.BYTES).getInt();
+                TableSpec spec = TableSpec.decodeMeta(in.require(metaLength));
+
+                // 블록 하나(= 덤프한 페이지 하나)씩 읽어서 배치 insert 한다.
+                int blockRows;
+                while ((blockRows = in.require(Integer.BYTES).getInt()) > 0) {
+                    int blockSize = in.require(Integer.BYTES).getInt();
+                    ByteBuffer buf = in.require(blockSize);
+                    List<SnapshotColumn> columns = spec.newColumns();
+                    for (SnapshotColumn column : columns) {
+                        column.decode(buf, blockRows);
+                    }
+                    insert(spec, columns, blockRows, mode);
+                    rows += blockRows;
+                }
+            }
+        }
+
+        eventPublisher.publishEvent(new DatasetRestoredEvent(file, mode));
+        return new Stats(rows, size, elapsedMillis(start));
+    }
+
+    /** hibernate_sequence 를 복원된 id 다음 값으로 맞춘다.
+     * H2 에서 alter sequence 는 DDL 이라 현재 트랜잭션이 커밋되므로 복원과 분리해 두었다.
+     */
+    public void alignSequence() {
+        Long max = jdbcTemplate.queryForObject(
+                "select greatest(coalesce((select max(id) from team), 0), " +
+                        "coalesce((select max(member_id) from member), 0), " +
+                        "coalesce((select max(member_id) from member_archive), 0))", Long.class);
+        jdbcTemplate.execute("alter sequence hibernate_sequence restart with " + (max + 1));
+    }
+
+    // 첫 번째 컬럼(id) 기준 키셋 페이징 - after 다음 id 부터 BATCH_SIZE 건
+    private List<SnapshotColumn> read(TableSpec spec, Long after) {
+        List<SnapshotColumn> columns = spec.newColumns();
+        String id = spec.columns.get(0).name;
+
+        String sql = "select " + spec.columnNames() + " from " + spec.name
+                + (after != null ? " where " + id + " > " + after : "")
+                + " order by " + id + " limit " + BATCH_SIZE;
+        jdbcTemplate.query(sql, rs -> {
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).append(rs, i + 1);
+            }
+        });
+        return columns;
+    }
+
+    private void insert(TableSpec spec, List<SnapshotColumn> columns, int rowCount, RestoreMode mode) {
+        String values = " values (" + columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+        String sql = mode == RestoreMode.MERGE
+                ? "merge into " + spec.name + " (" + spec.columnNames() + ") key (" + spec.columns.get(0).name + ")" + values
+                : "insert into " + spec.name + " (" + spec.columnNames() + ")" + values;
+
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                for (int c = 0; c < columns.size(); c++) {
+                    columns.get(c).bind(ps, c + 1, i);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rowCount;
+            }
+        });
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    public enum RestoreMode {
+        INSERT, MERGE
+    }
+
+    @Value
+    public static class Stats {
+        long rows;
+        long bytes;
+        long elapsedMillis;
+
+        public long getRowsPerSecond() {
+            return elapsedMillis == 0 ? rows : rows * 1000 / elapsedMillis;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class TableSpec {
+        final String name;
+        final List<ColumnSpec> columns;
+
+        String columnNames() {
+            return columns.stream().map(c -> c.name).collect(Collectors.joining(", "));
+        }
+
+        List<SnapshotColumn> newColumns() {
+            return columns.stream()
+                    .map(c -> new SnapshotColumn(c.name, c.type))
+                    .collect(Collectors.toList());
+        }
+
+        byte[] encodeMeta() {
+            ByteBuffer buf = ByteBuffer.allocate(1024);
+            putString(buf, name);
+            buf.putInt(columns.size());
+            for (ColumnSpec column : columns) {
+                putString(buf, column.name);
+                buf.put((byte) column.type.ordinal());
+            }
+            byte[] meta = new byte[buf.position()];
+            buf.flip().get(meta);
+            return meta;
+        }
+
+        static TableSpec decodeMeta(ByteBuffer buf) {
+            String name = getString(buf);
+            int columnCount = buf.getInt();
+            List<ColumnSpec> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                String columnName = getString(buf);
+                columns.add(new ColumnSpec(columnName, SnapshotColumn.Type.values()[buf.get()]));
+            }
+            return new TableSpec(name, columns);
+        }
+
+        private static void putString(ByteBuffer buf, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buf.putShort((short) bytes.length).put(bytes);
+        }
+
+        private static String getString(ByteBuffer buf) {
+            byte[] bytes = new byte[buf.getShort()];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class ColumnSpec {
+        final String name;
+        final SnapshotColumn.Type type;
+    }
+
+    /**
+     * 파일을 WINDOW_SIZE 단위로 매핑해서 순서대로 쓴다. - 매핑 한 번의 크기 제한(2GB)과 상관없이 쓸 수 있다.
+     * 매핑은 파일을 윈도우 끝까지 늘리므로 닫을 때 실제로 쓴 위치로 자른다.
+     */
+    private static final class MappedWriter implements Closeable {
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        // size 바이트를 이어서 쓸 수 있는 버퍼 - 남은 공간이 부족하면 현재 위치부터 다시 매핑한다.
+        ByteBuffer reserve(long size) throws IOException {
+            if (window.remaining() < size) {
+                long position = position();
+                window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW_SIZE, size));
+                windowStart = position;
+            }
+            return window;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                long end = position();
+                window.force();
+                window = null;
+                channel.truncate(end);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /** MappedWriter 로 쓴 파일을 WINDOW_SIZE 단위로 매핑해서 순서대로 읽는다. */
+    private static final class MappedReader implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedReader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+            window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, WINDOW_SIZE));
+        }
+
+        long size() {
+            return size;
+        }
+
+        // length 바이트를 이어서 읽을 수 있는 버퍼 - 남은 바이트가 부족하면 현재 위치부터 다시 매핑한다.
+        ByteBuffer require(long length) throws IOException {
+            if (window.remaining() < length) {
+                long position = windowStart + window.position();
+                if (size - position < length) throw new IOException("스냅샷 파일이 잘렸습니다 : " + position);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, Math.max(WINDOW_SIZE, length)));
+                windowStart = position;
+            }
+            return window;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package inflearn.querydsl.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 스냅샷 파일의 컬럼 한 개 (컬럼 단위로 값을 모아서 저장)
+ * [null 비트맵][값] - LONG: 8 byte 고정, INT: 4 byte 고정, STRING: 길이(int) 배열 + UTF-8 바이트
+ * TIMESTAMP: epoch 기준 나노초(long, 8 byte 고정) - 로컬 시간대 기준 (LocalDateTime 컬럼)
+ */
+final class SnapshotColumn {
+
+    enum Type {
+        LONG, INT, STRING, TIMESTAMP // 파일에 순서(ordinal)로 저장되므로 뒤에만 추가한다.
+    }
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    final String name;
+    final Type type;
+
+    private int rows;
+    private final BitSet nulls = new BitSet();
+    private long[] longs = new long[0];
+    private int[] ints = new int[0];
+    private byte[][] strings = new byte[0][];
+    private long stringBytes;
+
+    SnapshotColumn(String name, Type type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    // LONG 컬럼의 값 - 덤프할 때 다음 페이지의 시작 id 로 사용
+    long longAt(int row) {
+        return longs[row];
+    }
+
+    // ResultSet 의 현재 row 에서 값 하나를 읽어 추가
+    void append(ResultSet rs, int index) throws SQLException {
+        ensureCapacity(rows + 1);
+        switch (type) {
+            case LONG:
+                longs[rows] = rs.getLong(index);
+                break;
+            case INT:
+                ints[rows] = rs.getInt(index);
+                break;
+            case TIMESTAMP:
+                Timestamp timestamp = rs.getTimestamp(index);
+                if (timestamp != null) {
+                    longs[rows] = Math.floorDiv(timestamp.getTime(), 1000L) * NANOS_PER_SECOND + timestamp.getNanos();
+                }
+                break;
+            case STRING:
+                String value = rs.getString(index);
+                if (value != null) {
+                    strings[rows] = value.getBytes(StandardCharsets.UTF_8);
+                    stringBytes += strings[rows].length;
+                }
+                break;
+        }
+        if (rs.wasNull()) nulls.set(rows);
+        rows++;
+    }
+
+    // insert 문의 파라미터로 바인딩
+    void bind(PreparedStatement ps, int index, int row) throws SQLException {
+        if (nulls.get(row)) {
+            ps.setNull(index, sqlType());
+            return;
+        }
+        switch (type) {
+            case LONG:
+                ps.setLong(index, longs[row]);
+                break;
+            case INT:
+                ps.setInt(index, ints[row]);
+                break;
+            case STRING:
+                ps.setString(index, new String(strings[row], StandardCharsets.UTF_8));
+                break;
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(Math.floorDiv(longs[row], NANOS_PER_SECOND) * 1000L);
+                timestamp.setNanos((int) Math.floorMod(longs[row], NANOS_PER_SECOND));
+                ps.setTimestamp(index, timestamp);
+                break;
+        }
+    }
+
+    long encodedSize() {
+        long size = bitmapSize();
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                return size + (long) rows * Long.BYTES;
+            case INT:
+                return size + (long) rows * Integer.BYTES;
+            default:
+                return size + (long) rows * Integer.BYTES + stringBytes;
+        }
+    }
+
+    void encode(ByteBuffer buf) {
+        buf.put(Arrays.copyOf(nulls.toByteArray(), bitmapSize()));
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                for (int i = 0; i < rows; i++) buf.putLong(longs[i]);
+                break;
+            case INT:
+                for (int i = 0; i < rows; i++) buf.putInt(ints[i]);
+                break;
+            case STRING:
+                for (int i = 0; i < rows; i++) buf.putInt(strings[i] == null ? 0 : strings[i].length);
+                for (int i = 0; i < rows; i++) {
+                    if (strings[i] != null) buf.put(strings[i]);
+                }
+                break;
+        }
+    }
+
+    void decode(ByteBuffer buf, int rowCount) {
+        rows = rowCount;
+        byte[] bitmap = new byte[bitmapSize()];
+        buf.get(bitmap);
+        nulls.clear();
+        nulls.or(BitSet.valueOf(bitmap));
+
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                longs = new long[rows];
+                buf.asLongBuffer().get(longs);
+                buf.position(buf.position() + rows * Long.BYTES);
+                break;
+            case INT:
+                ints = new int[rows];
+                buf.asIntBuffer().get(ints);
+                buf.position(buf.position() + rows * Integer.BYTES);
+                break;
+            case STRING:
+                int[] lengths = new int[rows];
+                buf.asIntBuffer().get(lengths);
+                buf.position(buf.position() + rows * Integer.BYTES);
+                strings = new byte[rows][];
+                for (int i = 0; i < rows; i++) {
+                    if (nulls.get(i)) continue;
+                    strings[i] = new byte[lengths[i]];
+                    buf.get(strings[i]);
+                }
+                break;
+        }
+    }
+
+    private int sqlType() {
+        switch (type) {
+            case LONG:
+                return Types.BIGINT;
+            case INT:
+                return Types.INTEGER;
+            case TIMESTAMP:
+                return Types.TIMESTAMP;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+
+    private int bitmapSize() {
+        return (rows + 7) / 8;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length = type == Type.INT ? ints.length : type == Type.STRING ? strings.length : longs.length;
+        if (capacity <= length) return;
+
+        int newLength = Math.max(capacity, Math.max(16, length * 2));
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                longs = Arrays.copyOf(longs, newLength);
+                break;
+            case INT:
+                ints = Arrays.copyOf(ints, newLength);
+                break;
+            case STRING:
+                strings = Arrays.copyOf(strings, newLength);
+                break;
+        }
+    }
+}
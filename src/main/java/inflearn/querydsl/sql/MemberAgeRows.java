@@ -0,0 +1,63 @@
+package inflearn.querydsl.sql;
+
+import java.util.Arrays;
+
+/**
+ * (username, age) 조회 결과를 컬럼별 배열로 담는다.
+ * Tuple 은 row 마다 Tuple, Object[], Integer(박싱) 를 만들지만
+ * 여기서는 age 를 int[] 에 그대로 저장하므로 row 당 할당은 username 문자열뿐이다.
+ */
+public class MemberAgeRows {
+
+    private String[] usernames;
+    private int[] ages;
+    private int size;
+
+    public MemberAgeRows() {
+        this(16);
+    }
+
+    public MemberAgeRows(int initialCapacity) {
+        usernames = new String[Math.max(initialCapacity, 1)];
+        ages = new int[usernames.length];
+    }
+
+    public void add(String username, int age) {
+        if (size == ages.length) {
+            int capacity = size * 2;
+            usernames = Arrays.copyOf(usernames, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+        }
+        usernames[size] = username;
+        ages[size] = age;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getUsername(int row) {
+        checkRow(row);
+        return usernames[row];
+    }
+
+    public int getAge(int row) {
+        checkRow(row);
+        return ages[row];
+    }
+
+    public long sumAge() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += ages[i];
+        }
+        return sum;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row : " + row + ", size : " + size);
+        }
+    }
+}
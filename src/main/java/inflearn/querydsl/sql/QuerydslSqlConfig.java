@@ -0,0 +1,17 @@
+package inflearn.querydsl.sql;
+
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLTemplates;
+import org.springframework.context.annotation.Bean;
+
+@org.springframework.context.annotation.Configuration
+public class QuerydslSqlConfig {
+
+    // 네이티브 SQL 을 만들 때 사용할 DB 방언 - JPASQLQuery, SQLQuery 에서 공유
+    @Bean
+    public Configuration querydslSqlConfiguration() {
+        SQLTemplates templates = H2Templates.builder().build();
+        return new Configuration(templates);
+    }
+}
@@ -0,0 +1,47 @@
+package inflearn.querydsl.sql;
+
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * member 테이블의 네이티브 SQL 용 Q타입 (querydsl-sql)
+ * 테이블/컬럼 이름은 Member 엔티티의 매핑(@Column, @JoinColumn)과 동일하게 유지한다.
+ */
+public class SMember extends RelationalPathBase<SMember> {
+
+    public static final SMember member = new SMember("member");
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+
+    public final StringPath username = createString("username");
+
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final DateTimePath<LocalDateTime> lastActiveAt = createDateTime("lastActiveAt", LocalDateTime.class);
+
+    public final PrimaryKey<SMember> primary = createPrimaryKey(id);
+
+    public SMember(String variable) {
+        super(SMember.class, forVariable(variable), "PUBLIC", "member");
+        addMetadata();
+    }
+
+    private void addMetadata() {
+        addMetadata(id, ColumnMetadata.named("member_id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(username, ColumnMetadata.named("username").withIndex(2).ofType(Types.VARCHAR));
+        addMetadata(age, ColumnMetadata.named("age").withIndex(3).ofType(Types.INTEGER).notNull());
+        addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(4).ofType(Types.BIGINT));
+        addMetadata(lastActiveAt, ColumnMetadata.named("last_active_at").withIndex(5).ofType(Types.TIMESTAMP));
+    }
+}
@@ -0,0 +1,53 @@
+package inflearn.querydsl.sql;
+
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * member_archive 테이블의 네이티브 SQL 용 Q타입 (querydsl-sql)
+ * 테이블/컬럼 이름은 ArchivedMember 엔티티의 매핑과 동일하게 유지한다.
+ */
+public class SMemberArchive extends RelationalPathBase<SMemberArchive> {
+
+    public static final SMemberArchive memberArchive = new SMemberArchive("member_archive");
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+
+    public final StringPath username = createString("username");
+
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final DateTimePath<LocalDateTime> lastActiveAt = createDateTime("lastActiveAt", LocalDateTime.class);
+
+    public final DateTimePath<LocalDateTime> archivedAt = createDateTime("archivedAt", LocalDateTime.class);
+
+    public final NumberPath<Integer> archiveYear = createNumber("archiveYear", Integer.class);
+
+    public final PrimaryKey<SMemberArchive> primary = createPrimaryKey(id);
+
+    public SMemberArchive(String variable) {
+        super(SMemberArchive.class, forVariable(variable), "PUBLIC", "member_archive");
+        addMetadata();
+    }
+
+    private void addMetadata() {
+        addMetadata(id, ColumnMetadata.named("member_id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(username, ColumnMetadata.named("username").withIndex(2).ofType(Types.VARCHAR));
+        addMetadata(age, ColumnMetadata.named("age").withIndex(3).ofType(Types.INTEGER).notNull());
+        addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(4).ofType(Types.BIGINT));
+        addMetadata(lastActiveAt, ColumnMetadata.named("last_active_at").withIndex(5).ofType(Types.TIMESTAMP));
+        addMetadata(archivedAt, ColumnMetadata.named("archived_at").withIndex(6).ofType(Types.TIMESTAMP));
+        addMetadata(archiveYear, ColumnMetadata.named("archive_year").withIndex(7).ofType(Types.INTEGER).notNull());
+    }
+}
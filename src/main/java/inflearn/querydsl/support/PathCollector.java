@@ -0,0 +1,101 @@
+package inflearn.querydsl.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Querydsl 식에서 사용된 경로(Path)를 모은다. - IndexAdvisor, QueryKeys, JoinAdvisor 에서 공유
+ * - 연산, 템플릿(함수), 생성자 프로젝션의 인자를 따라 내려가고 상수, 파라미터는 건너뛴다.
+ * - 서브 쿼리는 from/join 대상, on, where 만 본다.
+ * - member.team.name 은 그대로 모은다. 루트(member)나 연관관계(member.team)가 필요하면 사용하는 쪽에서 꺼낸다.
+ */
+public final class PathCollector implements Visitor<Void, Set<Path<?>>> {
+
+    private static final PathCollector INSTANCE = new PathCollector();
+
+    private PathCollector() {
+    }
+
+    // 식 하나 - 조건(where 의 and 항목 등)
+    public static Set<Path<?>> of(Expression<?> expr) {
+        Set<Path<?>> paths = new LinkedHashSet<>();
+        if (expr != null) expr.accept(INSTANCE, paths);
+        return paths;
+    }
+
+    // from/join 대상, on 조건, where 조건 - 인덱스 후보
+    public static Set<Path<?>> conditions(QueryMetadata metadata) {
+        Set<Path<?>> paths = new LinkedHashSet<>();
+        collectConditions(metadata, paths);
+        return paths;
+    }
+
+    // 쿼리 전체 - select, group by, having, order by 까지
+    public static Set<Path<?>> all(QueryMetadata metadata) {
+        Set<Path<?>> paths = new LinkedHashSet<>();
+        collectConditions(metadata, paths);
+        accept(metadata.getProjection(), paths);
+        metadata.getGroupBy().forEach(expr -> accept(expr, paths));
+        accept(metadata.getHaving(), paths);
+        metadata.getOrderBy().forEach(order -> accept(order.getTarget(), paths));
+        return paths;
+    }
+
+    private static void collectConditions(QueryMetadata metadata, Set<Path<?>> paths) {
+        for (JoinExpression join : metadata.getJoins()) {
+            accept(join.getTarget(), paths);
+            accept(join.getCondition(), paths);
+        }
+        accept(metadata.getWhere(), paths);
+    }
+
+    private static void accept(Expression<?> expr, Set<Path<?>> paths) {
+        if (expr != null) expr.accept(INSTANCE, paths);
+    }
+
+    @Override
+    public Void visit(Constant<?> expr, Set<Path<?>> paths) {
+        return null;
+    }
+
+    @Override
+    public Void visit(FactoryExpression<?> expr, Set<Path<?>> paths) {
+        for (Expression<?> arg : expr.getArgs()) arg.accept(this, paths);
+        return null;
+    }
+
+    @Override
+    public Void visit(Operation<?> expr, Set<Path<?>> paths) {
+        for (Expression<?> arg : expr.getArgs()) arg.accept(this, paths);
+        return null;
+    }
+
+    @Override
+    public Void visit(ParamExpression<?> expr, Set<Path<?>> paths) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Path<?> expr, Set<Path<?>> paths) {
+        paths.add(expr);
+        return null;
+    }
+
+    @Override
+    public Void visit(SubQueryExpression<?> expr, Set<Path<?>> paths) {
+        collectConditions(expr.getMetadata(), paths);
+        return null;
+    }
+
+    @Override
+    public Void visit(TemplateExpression<?> expr, Set<Path<?>> paths) {
+        for (Object arg : expr.getArgs()) {
+            if (arg instanceof Expression) ((Expression<?>) arg).accept(this, paths);
+        }
+        return null;
+    }
+}
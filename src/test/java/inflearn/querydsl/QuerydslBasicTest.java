@@ -18,16 +18,23 @@ import inflearn.querydsl.dto.UserDTO;
 import inflearn.querydsl.entity.Member;
 import inflearn.querydsl.entity.QMember;
 import inflearn.querydsl.entity.Team;
+import inflearn.querydsl.outbox.OutboxBulkOperations;
+import inflearn.querydsl.snapshot.DatasetSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Commit;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceUnit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static com.querydsl.jpa.JPAExpressions.select;
@@ -37,6 +44,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 @Transactional
+@Isolated // @Commit 테스트가 공유 DB 에 벌크 연산을 커밋한다. - 커밋한 row 는 트랜잭션이 끝나면 지운다.
 public class QuerydslBasicTest {
 
     @Autowired
@@ -44,10 +52,27 @@ public class QuerydslBasicTest {
 
     JPQLQueryFactory queryFactory;
 
+    @Autowired
+    DatasetSnapshot datasetSnapshot;
+
+    @Autowired
+    OutboxBulkOperations outboxBulkOperations;
+
+    // 첫 테스트에서 저장한 픽스처를 스냅샷으로 남겨 두고, 이후 테스트는 JDBC 로 복원한다.
+    static Path fixture;
+    static List<Long> fixtureTeamIds;
+    static List<Long> fixtureMemberIds;
+
     @BeforeEach
-    public void before() {
+    public void before() throws IOException {
         queryFactory = new JPAQueryFactory(em);
 
+        if (fixture != null) {
+            // 같은 id 는 덮어쓰므로 @Commit 테스트가 바꿔 둔 픽스처도 처음 상태로 돌아온다.
+            datasetSnapshot.restore(fixture, DatasetSnapshot.RestoreMode.MERGE);
+            return;
+        }
+
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
         em.persist(teamA);
@@ -62,6 +87,25 @@ public class QuerydslBasicTest {
         em.persist(member2);
         em.persist(member3);
         em.persist(member4);
+
+        em.flush();
+        fixtureTeamIds = List.of(teamA.getId(), teamB.getId());
+        fixtureMemberIds = List.of(member1.getId(), member2.getId(), member3.getId(), member4.getId());
+        Path file = Files.createTempFile("querydsl-fixture", ".snapshot");
+        file.toFile().deleteOnExit();
+        datasetSnapshot.dump(file);
+        fixture = file;
+    }
+
+    /** @Commit 테스트가 커밋한 픽스처 row 를 지운다.
+     * 컨텍스트(= 내장 DB)를 함께 쓰는 다른 테스트 클래스가 teamA, member1 ~ 4 를 다시 만들기 때문에 남아 있으면 결과가 달라진다.
+     * 롤백된 테스트에서는 지울 row 가 없다.
+     */
+    @AfterTransaction
+    public void removeCommittedFixture() {
+        if (fixtureMemberIds == null) return;
+        outboxBulkOperations.delete(member, member.id, member.id.in(fixtureMemberIds));
+        outboxBulkOperations.delete(team, team.id, team.id.in(fixtureTeamIds));
     }
 
     @Test // JPQL 테스트
@@ -0,0 +1,157 @@
+package inflearn.querydsl.archive;
+
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.MemberSearchCondition;
+import inflearn.querydsl.entity.ArchivedMember;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import inflearn.querydsl.outbox.OutboxBulkOperations;
+import inflearn.querydsl.scheduler.QueryPriority;
+import inflearn.querydsl.scheduler.QueryScheduler;
+import inflearn.querydsl.service.MemberActivityService;
+import inflearn.querydsl.service.MemberSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static inflearn.querydsl.entity.QArchivedMember.archivedMember;
+import static inflearn.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberArchiverTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    OutboxBulkOperations outboxBulkOperations;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberSearchService memberSearchService;
+
+    @Autowired
+    MemberActivityService memberActivityService;
+
+    @Autowired
+    QueryScheduler queryScheduler;
+
+    LocalDateTime longAgo = LocalDateTime.now().minusYears(5);
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("archiveTeamA");
+        em.persist(teamA);
+
+        for (int i = 1; i <= 5; i++) {
+            Member member = new Member("archiveMember" + i, i * 10, teamA);
+            if (i <= 3) member.setLastActiveAt(longAgo); // 3명은 휴면
+            em.persist(member);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void archiveInBatches() {
+        MemberArchiver archiver = new MemberArchiver(em, queryFactory, outboxBulkOperations, transactionManager, queryScheduler, 2, 1095);
+        long admitted = queryScheduler.getStats(QueryPriority.BATCH).getAdmitted();
+
+        long archived = archiver.archive(LocalDateTime.now().minusYears(3));
+
+        assertThat(archived).isEqualTo(3);
+        // 묶음마다 BATCH 등급으로 실행 - 2명, 1명, 빈 묶음
+        assertThat(queryScheduler.getStats(QueryPriority.BATCH).getAdmitted()).isGreaterThanOrEqualTo(admitted + 3);
+        assertThat(queryFactory.selectFrom(member).where(member.username.startsWith("archiveMember")).fetch())
+                .extracting("username")
+                .containsExactlyInAnyOrder("archiveMember4", "archiveMember5");
+
+        List<ArchivedMember> archive = queryFactory.selectFrom(archivedMember)
+                .where(archivedMember.username.startsWith("archiveMember"))
+                .orderBy(archivedMember.id.asc())
+                .fetch();
+        assertThat(archive).extracting("username")
+                .containsExactly("archiveMember1", "archiveMember2", "archiveMember3");
+        assertThat(archive).allSatisfy(m -> {
+            assertThat(m.getArchiveYear()).isEqualTo(longAgo.getYear());
+            assertThat(m.getTeamId()).isNotNull();
+        });
+    }
+
+    @Test // 기본은 member 만, ALL 이면 아카이브까지
+    public void routing() {
+        MemberArchiver archiver = new MemberArchiver(em, queryFactory, outboxBulkOperations, transactionManager, queryScheduler, 500, 1095);
+        archiver.archive(LocalDateTime.now().minusYears(3));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("archiveTeamA");
+        condition.setAgeGoe(20);
+
+        List<MemberDTO> hot = memberSearchService.search(condition);
+        List<MemberDTO> all = memberSearchService.search(condition, ArchiveScope.ALL);
+
+        assertThat(hot).extracting("username").containsExactly("archiveMember4", "archiveMember5");
+        assertThat(all).extracting("username")
+                .containsExactly("archiveMember2", "archiveMember3", "archiveMember4", "archiveMember5");
+        assertThat(memberSearchService.search(condition, ArchiveScope.HOT)).isEqualTo(hot);
+    }
+
+    @Test // union 결과의 정렬과 페이징은 SQL 에서
+    public void pagingWithArchive() {
+        MemberArchiver archiver = new MemberArchiver(em, queryFactory, outboxBulkOperations, transactionManager, queryScheduler, 500, 1095);
+        archiver.archive(LocalDateTime.now().minusYears(3));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("archiveTeamA");
+        condition.setAgeGoe(20);
+
+        List<MemberDTO> page = memberSearchService.search(condition, ArchiveScope.ALL, new QueryModifiers(2L, 1L));
+
+        assertThat(page).extracting("username").containsExactly("archiveMember3", "archiveMember4");
+    }
+
+    @Test // 로그인한 회원은 다시 활동 중 - 아카이브 대상이 아니다.
+    public void loginKeepsMemberHot() {
+        assertThat(memberActivityService.login("archiveMember1")).isTrue();
+        assertThat(memberActivityService.login("noSuchMember")).isFalse();
+        em.flush();
+        em.clear();
+
+        MemberArchiver archiver = new MemberArchiver(em, queryFactory, outboxBulkOperations, transactionManager, queryScheduler, 500, 1095);
+        long archived = archiver.archive(LocalDateTime.now().minusYears(3));
+
+        assertThat(archived).isEqualTo(2);
+        assertThat(queryFactory.selectFrom(member).where(member.username.eq("archiveMember1")).fetchOne()).isNotNull();
+    }
+
+    @Test // lastActiveAt 이 없는 회원은 활동 시각을 모르므로 옮기지 않는다.
+    public void unknownActivityIsNotArchived() {
+        Member unknown = new Member("archiveUnknown", 60);
+        unknown.setLastActiveAt(null);
+        em.persist(unknown);
+        em.flush();
+        em.clear();
+
+        MemberArchiver archiver = new MemberArchiver(em, queryFactory, outboxBulkOperations, transactionManager, queryScheduler, 500, 1095);
+        long archived = archiver.archive(LocalDateTime.now().minusYears(3));
+
+        assertThat(archived).isEqualTo(3);
+        assertThat(queryFactory.selectFrom(member).where(member.username.eq("archiveUnknown")).fetchOne()).isNotNull();
+    }
+}
@@ -0,0 +1,249 @@
+package inflearn.querydsl.bitmap;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.MemberSearchCondition;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import inflearn.querydsl.outbox.OutboxBulkOperations;
+import inflearn.querydsl.outbox.OutboxEvent;
+import inflearn.querydsl.service.MemberSearchService;
+import inflearn.querydsl.snapshot.DatasetSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static inflearn.querydsl.outbox.QOutboxEvent.outboxEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * rebuild() 는 새 트랜잭션에서 커밋된 데이터만 읽으므로 픽스처를 커밋하고 테스트가 끝나면 지운다.
+ * 지우는 것도 아웃박스를 거치므로 공용 인덱스는 relay 로 정리된다.
+ */
+@SpringBootTest
+@Isolated // 공용 비트맵 인덱스를 다시 만들고, 커밋한 픽스처가 다른 테스트의 전체 count 에 섞이지 않게 한다.
+class MemberBitmapIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberBitmapIndex memberBitmapIndex;
+
+    @Autowired
+    MemberSearchService memberSearchService;
+
+    @Autowired
+    DatasetSnapshot datasetSnapshot;
+
+    @Autowired
+    OutboxBulkOperations outboxBulkOperations;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transactionTemplate;
+
+    Member member1;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("bitmapTeamA");
+            Team teamB = new Team("bitmapTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            member1 = new Member("bitmapMember1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("bitmapMember2", 20, teamA));
+            em.persist(new Member("bitmapMember3", 30, teamB));
+            em.persist(new Member("bitmapMember4", 40, teamB));
+            em.persist(new Member("bitmapMember5", 25, null));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        outboxBulkOperations.delete(member, member.id, member.username.startsWith("bitmapMember"));
+        outboxBulkOperations.delete(team, team.id, team.name.startsWith("bitmapTeam"));
+    }
+
+    @Test // 비트맵 교집합 결과와 DB 조회 결과가 같아야 한다.
+    public void matchesDatabase() {
+        MemberBitmapIndex index = new MemberBitmapIndex(queryFactory, transactionManager);
+        index.rebuild();
+
+        assertThat(index.count(20, 30, "bitmapTeamA")).isEqualTo(dbCount(20, 30, "bitmapTeamA")).isEqualTo(1);
+        assertThat(index.count(null, null, "bitmapTeamB")).isEqualTo(dbCount(null, null, "bitmapTeamB")).isEqualTo(2);
+        assertThat(index.count(25, null, null)).isEqualTo(dbCount(25, null, null));
+        assertThat(index.count(null, 20, null)).isEqualTo(dbCount(null, 20, null));
+        assertThat(index.count(null, null, null)).isEqualTo(dbCount(null, null, null));
+        assertThat(index.count(30, 20, null)).isZero();
+        assertThat(index.count(null, null, "noSuchTeam")).isZero();
+    }
+
+    @Test // 변경된 회원은 이전 나이/팀 비트맵에서 빠진다.
+    public void update() {
+        MemberBitmapIndex index = new MemberBitmapIndex(queryFactory, transactionManager);
+        index.rebuild();
+        Team teamB = queryFactory.selectFrom(team).where(team.name.eq("bitmapTeamB")).fetchOne();
+
+        index.putMember(member1.getId(), 35, teamB.getId());
+
+        assertThat(index.count(null, null, "bitmapTeamA")).isEqualTo(1);
+        assertThat(index.count(31, 40, "bitmapTeamB")).isEqualTo(2);
+        assertThat(index.match(10, 10, null).contains(member1.getId())).isFalse();
+
+        index.removeMember(member1.getId());
+        assertThat(index.count(null, null, "bitmapTeamB")).isEqualTo(2);
+    }
+
+    @Test // 아직 반영하지 않은 아웃박스 이벤트가 있으면 DB 로 조회
+    public void fallbackWhenStale() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bitmapTeamA");
+        condition.setAgeGoe(15);
+
+        // 아직 커밋하지 않은 자기 변경이 아웃박스에 보이면 인덱스를 사용하지 않는다.
+        long fallbacks = memberSearchService.getFallbacks();
+        List<MemberDTO> fromDb = transactionTemplate.execute(status -> {
+            em.persist(new Member("bitmapMember6", 50, null));
+            em.flush();
+            List<MemberDTO> result = memberSearchService.search(condition);
+            status.setRollbackOnly();
+            return result;
+        });
+        assertThat(memberSearchService.getFallbacks()).isEqualTo(fallbacks + 1);
+
+        memberBitmapIndex.rebuild(); // before() 에서 커밋한 변경까지 반영
+        long hits = memberSearchService.getIndexHits();
+        List<MemberDTO> fromIndex = memberSearchService.search(condition);
+        assertThat(memberSearchService.getIndexHits()).isEqualTo(hits + 1);
+
+        assertThat(fromIndex).extracting("username").containsExactly("bitmapMember2");
+        assertThat(fromIndex).extracting("username")
+                .containsExactlyElementsOf(fromDb.stream().map(MemberDTO::getUsername).collect(Collectors.toList()));
+
+        condition.setUsername("bitmapMember2"); // 인덱스에 없는 조건
+        assertThat(memberSearchService.count(condition)).isEqualTo(1);
+        assertThat(memberSearchService.getFallbacks()).isEqualTo(fallbacks + 2);
+    }
+
+    @Test // 큰 id 의 이벤트가 먼저 와도 그보다 작은 미반영 이벤트가 있으면 stale
+    public void staleWhileGapRemains() {
+        MemberBitmapIndex index = new MemberBitmapIndex(queryFactory, transactionManager);
+        index.rebuild();
+        assertThat(index.isFresh()).isTrue(); // before() 의 이벤트는 rebuild 로 읽은 데이터에 포함
+
+        // 커밋하지 않은 트랜잭션 안에서 확인 - relay 가 먼저 발행하지 못한다.
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("bitmapMember6", 50, null));
+            em.persist(new Member("bitmapMember7", 60, null));
+            em.flush();
+            List<OutboxEvent> events = queryFactory
+                    .selectFrom(outboxEvent)
+                    .where(outboxEvent.published.isFalse())
+                    .orderBy(outboxEvent.id.desc())
+                    .limit(2)
+                    .fetch();
+            OutboxEvent later = events.get(0);
+            OutboxEvent earlier = events.get(1);
+
+            index.onEvents(List.of(later)); // 작은 id 가 늦게 커밋된 경우
+            assertThat(index.isFresh()).isFalse();
+
+            index.onEvents(List.of(earlier));
+            assertThat(index.isFresh()).isTrue();
+            assertThat(index.count(50, 60, null)).isEqualTo(2);
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test // rebuild() 는 호출한 트랜잭션의 커밋되지 않은 데이터를 읽지 않는다.
+    public void rebuildIgnoresUncommittedData() {
+        MemberBitmapIndex index = new MemberBitmapIndex(queryFactory, transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("bitmapMember6", 50, null));
+            em.flush();
+            index.rebuild();
+            status.setRollbackOnly();
+        });
+
+        assertThat(index.count(50, 50, null)).isEqualTo(dbCount(50, 50, null));
+        assertThat(index.isFresh()).isTrue(); // 롤백된 변경은 인덱스에 없다.
+    }
+
+    @Test // invalidate() 하면 백그라운드에서 다시 만든다.
+    public void rebuildAfterInvalidate() throws Exception {
+        MemberBitmapIndex index = new MemberBitmapIndex(queryFactory, transactionManager);
+        index.rebuild();
+
+        index.invalidate();
+
+        awaitFresh(index);
+        assertThat(index.count(null, null, "bitmapTeamB")).isEqualTo(2);
+        index.shutdown();
+    }
+
+    @Test // 스냅샷 복원은 아웃박스를 거치지 않으므로 복원한 트랜잭션이 끝날 때까지 사용하지 않는다.
+    public void invalidatedByRestore() throws Exception {
+        memberBitmapIndex.rebuild();
+        assertThat(memberBitmapIndex.isFresh()).isTrue();
+
+        Path file = Files.createTempFile("bitmap", ".snapshot");
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    datasetSnapshot.dump(file);
+                    datasetSnapshot.restore(file, DatasetSnapshot.RestoreMode.MERGE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                assertThat(memberBitmapIndex.isFresh()).isFalse();
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        awaitFresh(memberBitmapIndex); // 트랜잭션이 끝나면 백그라운드에서 다시 만든다.
+    }
+
+    private static void awaitFresh(MemberBitmapIndex index) throws InterruptedException {
+        for (int i = 0; i < 50 && !index.isFresh(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(index.isFresh()).isTrue();
+    }
+
+    private long dbCount(Integer ageGoe, Integer ageLoe, String teamName) {
+        return queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(ageGoe != null ? member.age.goe(ageGoe) : null,
+                        ageLoe != null ? member.age.loe(ageLoe) : null,
+                        teamName != null ? team.name.eq(teamName) : null)
+                .fetchOne();
+    }
+}
@@ -0,0 +1,192 @@
+package inflearn.querydsl.cache;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import inflearn.querydsl.service.MemberReportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시는 읽기 전용 트랜잭션의 결과만 저장하므로 readOnly 트랜잭션에서 테스트한다.
+ * readOnly 이면 자동 flush 를 하지 않으므로 픽스처는 직접 flush 한다. (H2 는 readOnly 를 힌트로만 사용)
+ */
+@SpringBootTest
+@Transactional(readOnly = true)
+class QueryResultCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberReportService memberReportService;
+
+    @Autowired
+    QueryResultCache queryResultCache;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+    }
+
+    @Test // 같은 쿼리(같은 상수)는 캐시에서, 다른 상수는 다른 키
+    public void hitAndMiss() {
+        QueryResultCache cache = new QueryResultCache(60_000, 0.8, 100, 10_000);
+
+        List<Member> first = cache.fetch(queryFactory.selectFrom(member).where(member.age.goe(20)));
+        List<Member> second = cache.fetch(queryFactory.selectFrom(member).where(member.age.goe(20)));
+        cache.fetch(queryFactory.selectFrom(member).where(member.age.goe(30)));
+
+        assertThat(second).isSameAs(first);
+        QueryResultCache.Stats stats = cache.getStats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getLoads()).isEqualTo(2);
+    }
+
+    @Test // member 변경은 member 를 읽는 결과만 지운다.
+    public void invalidateByTable() {
+        QueryResultCache cache = new QueryResultCache(60_000, 0.8, 100, 10_000);
+
+        cache.fetch(queryFactory.select(member.username).from(member));
+        cache.fetch(queryFactory.select(team.name, member.age.avg())
+                .from(member).join(member.team, team).groupBy(team.name));
+        cache.fetch(queryFactory.select(team.name).from(team));
+
+        cache.invalidate("Member");
+
+        assertThat(cache.getStats().getInvalidations()).isEqualTo(2);
+        assertThat(cache.getStats().getSize()).isEqualTo(1);
+    }
+
+    @Test // 동시에 같은 키를 조회하면 한 번만 실행
+    public void singleFlight() throws Exception {
+        QueryResultCache cache = new QueryResultCache(60_000, 0.8, 100, 10_000);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            JPAQuery<String> query = queryFactory.select(member.username).from(member).where(member.age.gt(0));
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.fetch(query);
+            }));
+        }
+        start.countDown();
+        for (Future<List<String>> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(cache.getStats().getLoads()).isEqualTo(1);
+    }
+
+    @Test // ttl 의 일정 비율이 지나면 기존 값을 돌려주면서 백그라운드에서 갱신
+    public void refreshAhead() throws Exception {
+        QueryResultCache cache = new QueryResultCache(5_000, 0.01, 100, 10_000);
+
+        cache.fetch(queryFactory.select(member.username).from(member));
+        Thread.sleep(100);
+        cache.fetch(queryFactory.select(member.username).from(member));
+
+        for (int i = 0; i < 50 && cache.getStats().getLoads() < 2; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(cache.getStats().getRefreshes()).isEqualTo(1);
+        assertThat(cache.getStats().getLoads()).isEqualTo(2);
+        cache.shutdown();
+    }
+
+    @Test // 최대 개수를 넘으면 가장 오래 사용하지 않은 결과부터 제거
+    public void eviction() {
+        QueryResultCache cache = new QueryResultCache(60_000, 0.8, 2, 10_000);
+
+        cache.fetch(queryFactory.select(member.username).from(member).where(member.age.eq(10)));
+        cache.fetch(queryFactory.select(member.username).from(member).where(member.age.eq(20)));
+        cache.fetch(queryFactory.select(member.username).from(member).where(member.age.eq(30)));
+
+        assertThat(cache.getStats().getEvictions()).isEqualTo(1);
+        assertThat(cache.getStats().getSize()).isEqualTo(2);
+    }
+
+    @Test // 쓰기 트랜잭션에서 조회한 결과는 커밋되지 않은 변경이 보일 수 있으므로 저장하지 않는다.
+    public void notCachedInReadWriteTransaction() {
+        QueryResultCache cache = new QueryResultCache(60_000, 0.8, 100, 10_000);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        readWrite.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        readWrite.executeWithoutResult(status -> cache.fetch(queryFactory.select(member.username).from(member)));
+        assertThat(cache.getStats().getSize()).isEqualTo(0);
+
+        cache.fetch(queryFactory.select(member.username).from(member)); // 읽기 전용 트랜잭션
+        assertThat(cache.getStats().getSize()).isEqualTo(1);
+
+        // 이미 캐시된 결과도 쓰기 트랜잭션에서는 읽지 않는다.
+        readWrite.executeWithoutResult(status -> cache.fetch(queryFactory.select(member.username).from(member)));
+        assertThat(cache.getStats().getHits()).isEqualTo(0);
+        assertThat(cache.getStats().getBypasses()).isEqualTo(2);
+    }
+
+    @Test // 이 프로세스의 변경은 relay 를 기다리지 않고 커밋 직후 지운다.
+    public void invalidatedAfterCommit() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        readWrite.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        queryResultCache.fetch(queryFactory.select(team.name).from(team));
+        long invalidations = queryResultCache.getStats().getInvalidations();
+
+        Long teamId = readWrite.execute(status -> {
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            return teamC.getId();
+        });
+        try {
+            assertThat(queryResultCache.getStats().getInvalidations()).isGreaterThan(invalidations);
+        } finally {
+            readWrite.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+        }
+    }
+
+    @Test
+    public void report() {
+        Map<String, Long> brackets = memberReportService.countByAgeBracket();
+        Map<String, Double> averages = memberReportService.averageAgeByTeam();
+
+        assertThat(brackets).containsKeys("0~20살", "21~30살", "기타");
+        assertThat(brackets.values()).allMatch(count -> count > 0); // 나이대별로 묶인 count
+        assertThat(averages).containsKeys("teamA", "teamB");
+    }
+}
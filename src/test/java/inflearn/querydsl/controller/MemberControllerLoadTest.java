@@ -0,0 +1,131 @@
+package inflearn.querydsl.controller;
+
+import inflearn.querydsl.dto.MemberDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 일괄 조회(/members) vs 스트리밍(/reactive/members) 동시 요청 부하 테스트
+ * 처리량(req/s), 요청별 지연 시간(p50/p99), 최대 스레드 수, 최대 힙 증가량을 출력한다.
+ * 서버 스레드가 데이터를 봐야 하므로 @Transactional 을 사용하지 않고 직접 넣고 지운다.
+ * /members 는 QueryScheduler 를 거치므로 동시 요청이 모두 처리될 때까지 기다리도록 대기 시간을 늘린다.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "query-scheduler.interactive.admission-timeout-ms=60000")
+@Isolated // 부하 측정 - 다른 테스트와 동시에 실행하면 시간, 스레드 수가 흔들린다.
+class MemberControllerLoadTest {
+
+    static final int ROWS = 2_000;
+    static final int CONCURRENCY = 200;
+    static final long ID_OFFSET = 2_000_000;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    WebClient webClient;
+
+    @BeforeEach
+    public void before() {
+        webClient = WebClient.create("http://localhost:" + port);
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x + " + ID_OFFSET + ", concat('load', x), mod(x, 100) from system_range(1, " + ROWS + ")");
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where member_id > " + ID_OFFSET);
+    }
+
+    @Test
+    public void blockingVsReactive() {
+        long expected = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+
+        List<Long> blocking = run("blocking", () -> webClient.get().uri("/members")
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(MemberDTO.class)
+                .count());
+
+        List<Long> reactive = run("reactive", () -> webClient.get().uri("/reactive/members")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(MemberDTO.class)
+                .count());
+
+        // 모든 요청이 전체 row 를 받았는지
+        assertThat(blocking).containsOnly(expected);
+        assertThat(reactive).containsOnly(expected);
+    }
+
+    private List<Long> run(String name, Supplier<Mono<Long>> request) {
+        request.get().block(); // warm up
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        threads.resetPeakThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        // 요청이 진행되는 동안 최대 힙 사용량을 샘플링
+        AtomicLong peakHeap = new AtomicLong(heapBefore);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(
+                () -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 10, TimeUnit.MILLISECONDS);
+
+        long[] latencies = new long[CONCURRENCY];
+        long start = System.nanoTime();
+        List<Long> counts = Flux.range(0, CONCURRENCY)
+                .flatMap(i -> Mono.defer(() -> {
+                    long requestStart = System.nanoTime();
+                    return request.get().doOnSuccess(count -> latencies[i] = (System.nanoTime() - requestStart) / 1_000_000);
+                }), CONCURRENCY)
+                .collectList()
+                .block(Duration.ofMinutes(2));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        sampler.shutdownNow();
+
+        Arrays.sort(latencies);
+        System.out.println("[" + name + "] " + CONCURRENCY + " concurrent requests x " + ROWS + " rows"
+                + " | elapsed : " + elapsed + "ms"
+                + " | throughput : " + String.format("%.1f", CONCURRENCY * 1000.0 / Math.max(elapsed, 1)) + " req/s"
+                + " | latency p50 : " + percentile(latencies, 50) + "ms"
+                + " | p99 : " + percentile(latencies, 99) + "ms"
+                + " | peak threads : " + threads.getPeakThreadCount()
+                + " | peak heap growth : " + (peakHeap.get() - heapBefore) / 1024 / 1024 + "MB");
+
+        return counts;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+}
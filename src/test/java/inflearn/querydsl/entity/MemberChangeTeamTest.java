@@ -0,0 +1,144 @@
+package inflearn.querydsl.entity;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.service.MemberTeamService;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 회원 10만 명인 팀으로 옮길 때 Team.members 를 로딩하지 않는지 확인
+ * 통계는 테스트에서만 켠다. (hibernate.generate_statistics 와 같음)
+ */
+@SpringBootTest
+@Transactional
+@Isolated // SessionFactory 전체의 통계를 센다. - 다른 테스트가 동시에 엔티티를 로딩하면 숫자가 달라진다.
+class MemberChangeTeamTest {
+
+    static final int ROWS = 100_000;
+    static final long ID_OFFSET = 5_000_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberTeamService memberTeamService;
+
+    Statistics statistics;
+    Long bigTeamId;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        Team bigTeam = new Team("bigTeam");
+        Team teamA = new Team("teamA");
+        em.persist(bigTeam);
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.flush();
+
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), " + bigTeam.getId() + " " +
+                "from system_range(1, " + ROWS + ")");
+        em.clear();
+
+        bigTeamId = bigTeam.getId();
+        memberId = member1.getId();
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void changeTeamWithoutLoadingMembers() {
+        Team bigTeam = em.find(Team.class, bigTeamId);
+        Member member1 = em.find(Member.class, memberId);
+        Team teamA = member1.getTeam(); // 프록시
+
+        member1.changeTeam(bigTeam);
+        em.flush();
+
+        assertThat(Hibernate.isInitialized(bigTeam.getMembers())).isFalse();
+        assertThat(Hibernate.isInitialized(teamA)).isFalse();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(2); // bigTeam, member1
+
+        Long count = queryFactory.select(member.count()).from(member)
+                .where(member.team.id.eq(bigTeamId)).fetchOne();
+        assertThat(count).isEqualTo(ROWS + 1);
+    }
+
+    @Test // 이미 로딩된 컬렉션은 메모리에서도 맞춰 준다.
+    public void loadedCollectionsStayConsistent() {
+        Member member1 = em.find(Member.class, memberId);
+        Team teamA = member1.getTeam();
+        assertThat(teamA.getMembers()).containsExactly(member1); // 로딩
+
+        Team teamB = new Team("teamB");
+        em.persist(teamB);
+        member1.changeTeam(teamB);
+
+        assertThat(teamA.getMembers()).isEmpty();
+        assertThat(teamB.getMembers()).containsExactly(member1);
+    }
+
+    @Test // 로딩하지 않은 컬렉션에 추가한 회원은 나중에 로딩할 때 반영된다.
+    public void queuedAddAppliedOnLoad() {
+        Team teamB = new Team("teamB");
+        em.persist(teamB);
+        em.flush();
+        em.clear();
+
+        Team team = em.find(Team.class, teamB.getId());
+        Member member1 = em.find(Member.class, memberId);
+        member1.changeTeam(team);
+        assertThat(Hibernate.isInitialized(team.getMembers())).isFalse();
+
+        assertThat(team.getMembers()).containsExactly(member1); // flush 전 - DB 에는 아직 없다.
+    }
+
+    @Test
+    public void bulkChangeTeam() {
+        Team teamB = new Team("teamB");
+        em.persist(teamB);
+        List<Long> ids = queryFactory.select(member.id).from(member)
+                .where(member.team.id.eq(bigTeamId))
+                .orderBy(member.id.asc())
+                .limit(1000)
+                .fetch();
+
+        long count = memberTeamService.changeTeam(ids, teamB);
+
+        assertThat(count).isEqualTo(1000);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(queryFactory.select(member.count()).from(member)
+                .where(member.team.id.eq(teamB.getId())).fetchOne()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,109 @@
+package inflearn.querydsl.index;
+
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+    }
+
+    // 자주 실행되는 쿼리 - QuerydslBasicTest 의 검색 조건, 연관관계 조인
+    private List<JPAQuery<?>> hotQueries() {
+        return List.of(
+                queryFactory.selectFrom(member)
+                        .where(member.username.eq("member1"), member.age.eq(10)),
+                queryFactory.selectFrom(member)
+                        .where(member.age.between(20, 30)),
+                queryFactory.selectFrom(member)
+                        .join(member.team, team) // member.team -> team_id
+                        .where(team.name.eq("teamA")));
+    }
+
+    @Test // QuerydslBasicTest 에서 사용하는 조건/조인 키로 인덱스 DDL 만들기
+    public void advise() {
+        IndexAdvisor advisor = new IndexAdvisor();
+        hotQueries().forEach(query -> advisor.register(query.getMetadata()));
+        advisor.register(queryFactory.select(member)
+                .from(member, team) // 세타 조인
+                .where(member.username.eq(team.name))
+                .getMetadata());
+
+        List<String> ddl = advisor.ddl();
+        for (String s : ddl) {
+            System.out.println(s);
+        }
+
+        assertThat(ddl).containsExactlyInAnyOrder(
+                "create index idx_member_username on member (username)",
+                "create index idx_member_age on member (age)",
+                "create index idx_member_team_id on member (team_id)",
+                "create index idx_team_name on team (name)");
+    }
+
+    /** 자주 실행되는 쿼리의 실행 계획 확인
+     * Querydsl 쿼리를 Hibernate 가 만드는 SQL 로 바꿔서 EXPLAIN 한다.
+     * H2 의 EXPLAIN 결과에 tableScan 이 있으면 인덱스를 타지 않고 전체 테이블을 읽는다는 뜻
+     */
+    @Test
+    public void hotQueriesUseIndex() {
+        for (JPAQuery<?> query : hotQueries()) {
+            List<Object> bindings = new ArrayList<>();
+            String sql = toSql(query, bindings);
+
+            String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, bindings.toArray());
+            System.out.println("plan = " + plan);
+
+            assertThat(plan).as(sql).doesNotContainIgnoringCase("tableScan");
+        }
+    }
+
+    // JPQL -> Hibernate SQL, Querydsl 상수(?1, ?2 ...)를 SQL 의 ? 위치에 맞춰 bindings 에 담는다.
+    private String toSql(JPAQuery<?> query, List<Object> bindings) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(query.getMetadata(), false, null);
+        List<Object> constants = serializer.getConstants();
+
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        var translator = sessionFactory.getQueryPlanCache()
+                .getHQLQueryPlan(serializer.toString(), false, Collections.emptyMap())
+                .getTranslators()[0];
+
+        Map<Integer, Object> values = new TreeMap<>();
+        translator.getParameterTranslations().getPositionalParameterInformationMap().forEach((label, info) -> {
+            for (int location : info.getSourceLocations()) {
+                values.put(location, constants.get(label - 1));
+            }
+        });
+        bindings.addAll(values.values());
+        return translator.getSQLString();
+    }
+}
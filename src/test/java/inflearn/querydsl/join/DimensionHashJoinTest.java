@@ -0,0 +1,110 @@
+package inflearn.querydsl.join;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 세타 조인(from(member, team)) vs 메모리 해시 조인 결과와 지연 시간 비교
+ * member.username = team.name 은 member 쪽에 사용할 인덱스가 없다.
+ */
+@SpringBootTest
+@Transactional
+class DimensionHashJoinTest {
+
+    static final int MEMBERS = 20_000;
+    static final int TEAMS = 200;
+    static final long ID_OFFSET = 8_000_000;
+    static final int ITERATIONS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    DimensionHashJoin dimensionHashJoin;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (id, name) " +
+                "select x + " + ID_OFFSET + ", concat('hash', x) from system_range(1, " + TEAMS + ")");
+        // 10 명 중 1 명은 이름이 팀 이름과 같다.
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x + " + (ID_OFFSET + TEAMS) + ", " +
+                "case when mod(x, 10) = 0 then concat('hash', mod(x / 10, " + TEAMS + ") + 1) else concat('m', x) end, " +
+                "mod(x, 100) from system_range(1, " + MEMBERS + ")");
+    }
+
+    @Test
+    public void sameResultAsThetaJoin() {
+        List<String> theta = measure("theta join", () -> {
+            List<Tuple> rows = queryFactory
+                    .select(member, team)
+                    .from(member, team)
+                    .where(member.username.eq(team.name), team.name.startsWith("hash"))
+                    .fetch();
+            return rows.stream()
+                    .map(t -> t.get(member).getId() + ":" + t.get(team).getId())
+                    .sorted()
+                    .collect(Collectors.toList());
+        });
+
+        List<String> hash = measure("hash join ", () ->
+                dimensionHashJoin.join(member, member.username, team, team.name, null, team.name.startsWith("hash"))
+                        .stream()
+                        .map(row -> row.getFact().getId() + ":" + row.getDimension().getId())
+                        .sorted()
+                        .collect(Collectors.toList()));
+
+        assertThat(hash).hasSize(MEMBERS / 10).isEqualTo(theta);
+    }
+
+    @Test // 차원 테이블이 크면 세타 조인으로 실행
+    public void fallbackWhenDimensionIsLarge() {
+        List<DimensionHashJoin.Row<Member, Team>> rows = dimensionHashJoin.join(
+                member, member.username, team, team.name, member.age.lt(50), team.name.startsWith("hash"), 10);
+
+        assertThat(rows).isNotEmpty();
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row.getFact().getUsername()).isEqualTo(row.getDimension().getName());
+            assertThat(row.getFact().getAge()).isLessThan(50);
+        });
+    }
+
+    // 워밍업 후 평균 지연 시간 출력 - 매번 영속성 컨텍스트를 비워 같은 조건에서 비교
+    private <T> T measure(String name, Supplier<T> query) {
+        T result = null;
+        for (int i = 0; i < 2; i++) {
+            result = query.get();
+            em.clear();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            result = query.get();
+            em.clear();
+        }
+        System.out.println(name + " : " + (System.nanoTime() - start) / ITERATIONS / 1_000_000 + "ms");
+        return result;
+    }
+}
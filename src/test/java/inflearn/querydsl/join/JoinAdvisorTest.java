@@ -0,0 +1,133 @@
+package inflearn.querydsl.join;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class JoinAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    JoinAdvisor advisor = new JoinAdvisor();
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("teamA", 40, null));
+    }
+
+    @Test // QuerydslBasicTest.theta_join
+    public void thetaJoin() {
+        List<JoinAdvice> advices = advisor.inspect(queryFactory
+                .select(member)
+                .from(member, team)
+                .where(member.username.eq(team.name))
+                .getMetadata());
+
+        assertThat(advices).extracting("issue").containsExactly(JoinIssue.THETA_JOIN);
+    }
+
+    @Test
+    public void cartesianProduct() {
+        List<JoinAdvice> advices = advisor.inspect(queryFactory
+                .select(member, team)
+                .from(member, team)
+                .where(member.age.gt(10))
+                .getMetadata());
+
+        assertThat(advices).extracting("issue").containsExactly(JoinIssue.CARTESIAN_PRODUCT);
+    }
+
+    @Test // QuerydslBasicTest.join_on_no_relation
+    public void joinOnNoRelation() {
+        List<JoinAdvice> advices = advisor.inspect(queryFactory
+                .select(member, team)
+                .from(member)
+                .leftJoin(team).on(member.username.eq(team.name))
+                .getMetadata());
+
+        assertThat(advices).extracting("issue").containsExactly(JoinIssue.THETA_JOIN);
+    }
+
+    @Test // on 으로 조인 대상을 거르는 외부 조인은 그대로 - QuerydslBasicTest.join_on_filtering
+    public void leftJoinOnFilter() {
+        List<JoinAdvice> advices = advisor.inspect(queryFactory
+                .select(member, team)
+                .from(member)
+                .leftJoin(member.team, team).on(team.name.eq("teamA"))
+                .getMetadata());
+
+        assertThat(advices).isEmpty();
+    }
+
+    @Test // where 에서 team 컬럼을 비교하면 내부 조인과 같다.
+    public void outerJoinCanBeInner() {
+        JPAQuery<Tuple> query = queryFactory
+                .select(member.username, team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("teamA"), member.age.goe(10))
+                .orderBy(member.username.asc());
+
+        assertThat(advisor.inspect(query.getMetadata()))
+                .extracting("issue").containsExactly(JoinIssue.OUTER_JOIN_CAN_BE_INNER);
+
+        JPAQuery<Tuple> rewritten = advisor.toInnerJoins(query, em);
+        assertThat(rewritten.toString()).contains("inner join").doesNotContain("left join");
+        assertThat(advisor.inspect(rewritten.getMetadata())).isEmpty();
+        assertThat(rewritten.fetch()).isEqualTo(query.fetch());
+
+        // null 을 허용하는 조건(or isNull)이면 바꾸지 않는다.
+        JPAQuery<Tuple> nullable = queryFactory
+                .select(member.username, team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("teamA").or(team.name.isNull()));
+        assertThat(advisor.inspect(nullable.getMetadata())).isEmpty();
+    }
+
+    @Test
+    public void fetchJoinWithPaging() {
+        List<JoinAdvice> toOne = advisor.inspect(queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .offset(0).limit(2)
+                .getMetadata());
+        List<JoinAdvice> toMany = advisor.inspect(queryFactory
+                .selectFrom(team)
+                .join(team.members, member).fetchJoin()
+                .limit(2)
+                .getMetadata());
+
+        assertThat(toOne).extracting("issue").containsExactly(JoinIssue.FETCH_JOIN_WITH_PAGING);
+        assertThat(toMany).extracting("issue").containsExactly(JoinIssue.FETCH_JOIN_WITH_PAGING);
+        assertThat(toMany.get(0).getMessage()).contains("컬렉션");
+    }
+}
@@ -0,0 +1,120 @@
+package inflearn.querydsl.outbox;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.outbox.QOutboxEvent.outboxEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class OutboxTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    OutboxBulkOperations outboxBulkOperations;
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @Test
+    public void recordAndRelay() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.flush();
+
+        // 세터, changeTeam() 변경은 flush 시점에 UPDATE 한 건으로 기록
+        member1.setAge(11);
+        member1.changeTeam(teamB);
+        em.flush();
+
+        // 벌크 update 는 대상 row 마다 UPDATE 로 기록
+        long count = outboxBulkOperations.update(member, member.id,
+                member.id.in(member1.getId(), member2.getId()),
+                clause -> clause.set(member.username, "비회원"));
+        assertThat(count).isEqualTo(2);
+
+        List<OutboxEvent> member1Events = eventsOf(member1.getId());
+        assertThat(member1Events).extracting("operation")
+                .containsExactly(ChangeOperation.INSERT, ChangeOperation.UPDATE, ChangeOperation.UPDATE);
+        assertThat(member1Events.get(1).getPayload())
+                .contains("\"age\":11")
+                .contains("\"teamId\":" + teamB.getId());
+        assertThat(member1Events.get(2).getPayload()).contains("비회원");
+        assertThat(eventsOf(member2.getId())).hasSize(2);
+
+        // 발행 - 기록 순서대로 구독자에게 전달되고 published 로 바뀐다.
+        List<OutboxEvent> received = new ArrayList<>();
+        OutboxSubscriber subscriber = received::addAll;
+        outboxRelay.subscribe(subscriber);
+        try {
+            while (outboxRelay.relay() > 0) {
+                // 모두 발행될 때까지
+            }
+        } finally {
+            outboxRelay.unsubscribe(subscriber);
+        }
+
+        assertThat(received).extracting("id").isSorted();
+        assertThat(received).extracting("aggregateId").contains(member1.getId(), member2.getId(), teamA.getId());
+        em.clear();
+        assertThat(eventsOf(member1.getId())).extracting("published").containsOnly(true);
+    }
+
+    @Test // 벌크 delete 는 삭제 전 상태를 DELETE 로 기록
+    public void bulkDelete() {
+        Member member1 = new Member("member1", 10);
+        em.persist(member1);
+
+        outboxBulkOperations.delete(member, member.id, member.id.eq(member1.getId()));
+
+        List<OutboxEvent> events = eventsOf(member1.getId());
+        assertThat(events).extracting("operation").containsExactly(ChangeOperation.INSERT, ChangeOperation.DELETE);
+        assertThat(events.get(1).getPayload()).contains("member1");
+    }
+
+    @Test // 다른 트랜잭션이 기록하고 아직 끝나지 않은 id 가 있으면 그 뒤의 id 는 발행하지 않는다.
+    public void watermarkHoldsBackUncommittedIds() {
+        Object writer = new Object();
+        Object relay = new Object();
+        long id = OutboxInFlight.record(writer, () -> 0L); // IDENTITY 는 1 부터 - 실제 이벤트와 겹치지 않는다.
+        try {
+            assertThat(OutboxInFlight.watermark(relay, () -> 0L)).isEqualTo(id);
+            assertThat(OutboxInFlight.watermark(writer, () -> 0L)).isGreaterThan(id); // 자기가 기록한 id 는 막지 않는다.
+        } finally {
+            OutboxInFlight.complete(id);
+        }
+        assertThat(OutboxInFlight.watermark(relay, () -> 0L)).isGreaterThan(id);
+    }
+
+    private List<OutboxEvent> eventsOf(Long memberId) {
+        return queryFactory
+                .selectFrom(outboxEvent)
+                .where(outboxEvent.aggregateType.eq("Member"),
+                        outboxEvent.aggregateId.eq(memberId))
+                .orderBy(outboxEvent.id.asc())
+                .fetch();
+    }
+}
@@ -0,0 +1,113 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.sql.MemberAgeRows;
+import inflearn.querydsl.sql.SMember;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 조회 패턴별 row 당 할당 바이트 측정 - ./gradlew profileAllocations 로 실행 (JFR 기록 포함)
+ * 같은 스레드의 할당량(ThreadMXBean.getThreadAllocatedBytes)을 조회 전후로 비교한다.
+ * JDBC 드라이버 할당도 포함되므로 절대값보다 패턴 간 차이를 본다.
+ */
+@Tag("profiling")
+@SpringBootTest
+@Transactional
+@Isolated // 할당량 측정 - 다른 테스트의 할당이 섞이지 않도록
+class AllocationProfilingTest {
+
+    static final int ROWS = Integer.getInteger("profiling.rows", 100_000);
+    static final long ID_OFFSET = 6_000_000;
+    static final int WARMUP = 3;
+    static final int ITERATIONS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberAgeRowRepository memberAgeRowRepository;
+
+    com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100) from system_range(1, " + ROWS + ")");
+    }
+
+    @Test
+    public void bytesPerRow() {
+        Map<String, Long> result = new LinkedHashMap<>();
+
+        // selectFrom(member) - 엔티티 + 영속성 컨텍스트 스냅샷
+        result.put("entity", measure(() -> {
+            List<Member> members = queryFactory.selectFrom(member).where(member.id.gt(ID_OFFSET)).fetch();
+            em.clear();
+            return members.size();
+        }));
+        // aggregation, selectSubQuery 처럼 Tuple 로 받는 경우 - Tuple, Object[], Integer
+        result.put("tuple", measure(() -> {
+            List<Tuple> tuples = queryFactory.select(member.username, member.age)
+                    .from(member).where(member.id.gt(ID_OFFSET)).fetch();
+            return tuples.size();
+        }));
+        // concat - 문자열 연결 결과
+        result.put("concat", measure(() -> {
+            List<String> names = queryFactory.select(member.username.concat("_").concat(member.age.stringValue()))
+                    .from(member).where(member.id.gt(ID_OFFSET)).fetch();
+            return names.size();
+        }));
+        // int[] 에 그대로 저장
+        result.put("primitive", measure(() -> {
+            MemberAgeRows rows = memberAgeRowRepository.findUsernameAndAge(SMember.member.id.gt(ID_OFFSET));
+            return rows.size();
+        }));
+
+        result.forEach((name, bytes) -> System.out.println(String.format("%-10s : %,d bytes/row", name, bytes)));
+        assertThat(result.get("primitive")).isLessThan(result.get("tuple"));
+        assertThat(result.get("tuple")).isLessThan(result.get("entity"));
+    }
+
+    // 워밍업 후 평균 row 당 할당 바이트
+    private long measure(IntSupplier query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.getAsInt();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long bytes = 0;
+        long rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            rows += query.getAsInt();
+            bytes += threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        }
+        return bytes / Math.max(rows, 1);
+    }
+}
@@ -0,0 +1,102 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@Isolated // 실행 시간 비교
+class ExistsBenchmarkTest {
+
+    static final int ROWS = 100_000;
+    static final int ITERATIONS = 50;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberQueryRepository memberQueryRepository;
+
+    @Autowired
+    TeamQueryRepository teamQueryRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+
+        // 대량 데이터는 H2 의 system_range 로 한 번에 넣는다 - 시퀀스와 겹치지 않도록 큰 id 사용
+        em.createNativeQuery("insert into member (member_id, username, age) " +
+                "select x + 1000000, concat('bulk', x), mod(x, 100) from system_range(1, " + ROWS + ")")
+                .executeUpdate();
+    }
+
+    @Test
+    public void exists() {
+        assertThat(memberQueryRepository.exists(member.username.eq("member1"))).isTrue();
+        assertThat(memberQueryRepository.exists(member.username.eq("none"))).isFalse();
+        assertThat(teamQueryRepository.exists(team.name.eq("teamA"))).isTrue();
+    }
+
+    @Test // 상관 서브 쿼리 - exists (select 1 from member memberSub where memberSub.team_id = team.id and ...)
+    public void existsSubQuery() {
+        List<Team> result = teamQueryRepository.findTeamsHavingMemberOlderThan(25);
+
+        assertThat(result).extracting("name").containsExactly("teamB");
+    }
+
+    @Test // count 기반 존재 확인 vs exists
+    public void benchmark() {
+        BooleanSupplier byCount = () -> queryFactory
+                .selectFrom(member)
+                .where(member.age.gt(10))
+                .fetchCount() > 0;
+        BooleanSupplier byFetchFirst = () -> queryFactory
+                .selectFrom(member)
+                .where(member.age.gt(10))
+                .fetchFirst() != null;
+        BooleanSupplier byExists = () -> memberQueryRepository.exists(member.age.gt(10));
+
+        assertThat(byCount.getAsBoolean()).isEqualTo(byExists.getAsBoolean());
+
+        System.out.println("fetchCount() > 0      : " + measure(byCount) + "ms");
+        System.out.println("fetchFirst() != null  : " + measure(byFetchFirst) + "ms");
+        System.out.println("exists (select 1 ...) : " + measure(byExists) + "ms");
+    }
+
+    private long measure(BooleanSupplier check) {
+        check.getAsBoolean(); // warm up
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            check.getAsBoolean();
+            em.clear(); // fetchFirst() 로 올라간 엔티티 제거
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,127 @@
+package inflearn.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.QMemberDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로더는 별도 스레드에서 조회하므로 @Transactional 을 사용하지 않고 직접 넣고 지운다.
+ */
+@SpringBootTest
+@Isolated // 데이터를 커밋하고 지연 시간을 잰다.
+class MemberBatchLoaderTest {
+
+    static final int ROWS = 1_000;
+    static final int THREADS = 64;
+    static final int LOOKUPS_PER_THREAD = 100;
+    static final long ID_OFFSET = 3_000_000;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberBatchLoader memberBatchLoader;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x + " + ID_OFFSET + ", concat('batch', x), mod(x, 100) from system_range(1, " + ROWS + ")");
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where member_id > " + ID_OFFSET);
+    }
+
+    @Test
+    public void load() throws Exception {
+        // 윈도우를 충분히 길게 잡고 flush() 로 직접 조회 - 타이머에 따라 배치가 나뉘지 않는다.
+        MemberBatchLoader loader = new MemberBatchLoader(queryFactory, TimeUnit.MINUTES.toMillis(1), 1024);
+        try {
+            CompletableFuture<MemberDTO> found = loader.load("batch1");
+            CompletableFuture<MemberDTO> same = loader.load("batch1");
+            CompletableFuture<MemberDTO> missing = loader.load("none");
+
+            assertThat(same).isSameAs(found); // 같은 배치 안의 중복 요청은 합친다.
+            assertThat(found).isNotDone();
+
+            loader.flush();
+
+            assertThat(loader.getRoundTrips()).isEqualTo(1);
+            assertThat(found.getNow(null).getAge()).isEqualTo(1);
+            assertThat(missing.getNow(null)).isNull();
+            assertThat(missing).isDone();
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    @Test // 단건 fetchOne() vs 배치 로더 - 쿼리 횟수와 p99 지연 시간
+    public void benchmark() throws Exception {
+        long before = memberBatchLoader.getRoundTrips();
+
+        List<Long> single = run(username -> queryFactory
+                .select(new QMemberDTO(member.username, member.age))
+                .from(member)
+                .where(member.username.eq(username))
+                .fetchOne());
+        List<Long> batched = run(username -> memberBatchLoader.load(username).join());
+
+        long lookups = (long) THREADS * LOOKUPS_PER_THREAD;
+        long roundTrips = memberBatchLoader.getRoundTrips() - before;
+        System.out.println("fetchOne()    : round-trips " + lookups + " | p99 " + p99(single) + "us");
+        System.out.println("batch loader  : round-trips " + roundTrips + " | p99 " + p99(batched) + "us");
+
+        assertThat(roundTrips).isLessThan(lookups);
+    }
+
+    private List<Long> run(Function<String, MemberDTO> lookup) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicLong seq = new AtomicLong();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                    String username = "batch" + (seq.incrementAndGet() % ROWS + 1);
+                    long start = System.nanoTime();
+                    MemberDTO result = lookup.apply(username);
+                    latencies.add((System.nanoTime() - start) / 1_000);
+                    assertThat(result.getUsername()).isEqualTo(username);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(); // 스레드 안에서 실패한 검증을 여기서 다시 던진다.
+        }
+        executor.shutdown();
+        return latencies;
+    }
+
+    private long p99(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+    }
+}
@@ -0,0 +1,72 @@
+package inflearn.querydsl.repository;
+
+import inflearn.querydsl.dto.MemberDTO;
+import inflearn.querydsl.dto.MemberRankDTO;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberRankingRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRankingRepository memberRankingRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush(); // 네이티브 SQL 이 읽을 수 있도록 DB 에 반영
+    }
+
+    @Test // 팀별 나이 순위 상위 1 명 - rank() over (partition by team_id order by age desc)
+    public void topOldestPerTeam() {
+        List<MemberRankDTO> result = memberRankingRepository.findTopOldestPerTeam(1);
+
+        assertThat(result).extracting("username").containsExactly("member2", "member4");
+        assertThat(result).extracting("teamName").containsExactly("teamA", "teamB");
+        assertThat(result).extracting("rank").containsOnly(1L);
+    }
+
+    @Test // 팀별 전체 순위
+    public void rankPerTeam() {
+        List<MemberRankDTO> result = memberRankingRepository.findTopOldestPerTeam(2);
+
+        assertThat(result).extracting("username").containsExactly("member2", "member1", "member4", "member3");
+        assertThat(result).extracting("rank").containsExactly(1L, 2L, 1L, 2L);
+    }
+
+    @Test // 나이가 평균 이상인 회원 - avg(age) over ()
+    public void ageGoeAverage() {
+        List<MemberDTO> result = memberRankingRepository.findAgeGoeAverage();
+
+        assertThat(result).extracting("age").containsExactly(30, 40);
+    }
+
+    @Test // 나이가 가장 많은 회원 - max(age) over ()
+    public void oldest() {
+        List<MemberDTO> result = memberRankingRepository.findOldest();
+
+        assertThat(result).extracting("username").containsExactly("member4");
+    }
+}
@@ -0,0 +1,133 @@
+package inflearn.querydsl.scheduler;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static inflearn.querydsl.entity.QMember.member;
+import static inflearn.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 리포트(세타 조인) 쿼리가 몰릴 때 화면 조회 지연 시간 비교
+ * - 직접 실행 : 리포트 쿼리가 커넥션 풀을 모두 차지해 화면 조회가 커넥션을 기다린다.
+ * - 스케줄러 : 리포트는 동시에 2개까지만 실행되므로 화면 조회는 바로 커넥션을 받는다.
+ * 여러 스레드에서 조회하므로 @Transactional 을 사용하지 않고 직접 넣고 지운다.
+ */
+@SpringBootTest
+@Isolated // 부하 측정 - 데이터를 커밋하고 커넥션 풀을 채운다.
+class QuerySchedulerLoadTest {
+
+    static final int MEMBERS = 2_000;
+    static final int TEAMS = 500;
+    static final long ID_OFFSET = 7_000_000;
+    static final int REPORT_THREADS = 16;
+    static final int INTERACTIVE_QUERIES = 300;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    QueryScheduler queryScheduler;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (id, name) " +
+                "select x + " + ID_OFFSET + ", concat('load', x) from system_range(1, " + TEAMS + ")");
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x + " + (ID_OFFSET + TEAMS) + ", concat('load', x), mod(x, 100) " +
+                "from system_range(1, " + MEMBERS + ")");
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where member_id > " + ID_OFFSET);
+        jdbcTemplate.update("delete from team where id > " + ID_OFFSET);
+    }
+
+    @Test
+    public void interactiveP99UnderReportLoad() throws Exception {
+        long direct = p99(JPAQuery::fetchOne, JPAQuery::fetchOne);
+        long scheduled = p99(
+                query -> queryScheduler.fetchOne(QueryPriority.INTERACTIVE, query),
+                query -> queryScheduler.fetchOne(QueryPriority.REPORT, query));
+
+        QueryScheduler.Stats report = queryScheduler.getStats(QueryPriority.REPORT);
+        QueryScheduler.Stats interactive = queryScheduler.getStats(QueryPriority.INTERACTIVE);
+        System.out.println("interactive p99 - direct : " + direct + "ms | scheduled : " + scheduled + "ms");
+        System.out.println("report      : " + report);
+        System.out.println("interactive : " + interactive);
+
+        assertThat(interactive.getRejected()).isZero();
+        assertThat(interactive.getAdmitted()).isEqualTo(INTERACTIVE_QUERIES);
+        assertThat(report.getMaxWaitMicros()).isPositive(); // 리포트는 대기열에서 기다렸다.
+        assertThat(scheduled).isLessThan(QueryPriority.INTERACTIVE.getStatementTimeoutMs());
+    }
+
+    /** 리포트 쿼리를 계속 실행하는 동안 화면 조회 지연 시간의 p99 (ms) */
+    private long p99(Function<JPAQuery<String>, String> interactive,
+                     Function<JPAQuery<Long>, Long> report) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(REPORT_THREADS);
+        AtomicInteger running = new AtomicInteger(1);
+        List<Future<?>> reports = new ArrayList<>();
+        for (int i = 0; i < REPORT_THREADS; i++) {
+            reports.add(executor.submit(() -> {
+                while (running.get() == 1) {
+                    try {
+                        report.apply(thetaJoinReport());
+                    } catch (QueryRejectedException ignored) {
+                        // 대기열 초과 - 다시 시도
+                    }
+                }
+            }));
+        }
+        Thread.sleep(200); // 리포트 쿼리가 풀을 채울 때까지
+
+        List<Long> latencies = new ArrayList<>();
+        try {
+            for (int i = 0; i < INTERACTIVE_QUERIES; i++) {
+                long id = ID_OFFSET + TEAMS + 1 + i % MEMBERS;
+                long start = System.nanoTime();
+                String username = interactive.apply(queryFactory
+                        .select(member.username)
+                        .from(member)
+                        .where(member.id.eq(id)));
+                latencies.add((System.nanoTime() - start) / 1_000_000);
+                assertThat(username).startsWith("load");
+            }
+        } finally {
+            running.set(0);
+            for (Future<?> future : reports) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            executor.shutdown();
+        }
+
+        Collections.sort(latencies);
+        return latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+    }
+
+    // QuerydslBasicTest.theta_join 과 같은 from(member, team) - 인덱스를 타지 못하도록 concat 비교
+    private JPAQuery<Long> thetaJoinReport() {
+        return queryFactory
+                .select(member.count())
+                .from(member, team)
+                .where(member.username.concat("_").eq(team.name.concat("_")));
+    }
+}
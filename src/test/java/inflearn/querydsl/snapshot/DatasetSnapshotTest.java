@@ -0,0 +1,95 @@
+package inflearn.querydsl.snapshot;
+
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 덤프/복원 처리량 측정 - 기본 10만 건, -Dsnapshot.rows=3000000 처럼 늘려서 실행할 수 있다.
+ * 트랜잭션 안에서 JdbcTemplate 도 같은 커넥션을 사용하므로 테스트가 끝나면 모두 롤백된다.
+ */
+@SpringBootTest
+@Transactional
+@Isolated // 테이블 전체를 지우고 다시 넣는다.
+class DatasetSnapshotTest {
+
+    static final int ROWS = Integer.getInteger("snapshot.rows", 100_000);
+    static final int TEAMS = 100;
+    static final long ID_OFFSET = 4_000_000;
+    static final int PERSIST_ROWS = 10_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DatasetSnapshot datasetSnapshot;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void dumpAndRestore() throws Exception {
+        jdbcTemplate.update("insert into team (id, name) " +
+                "select x + " + ID_OFFSET + ", concat('team', x) from system_range(1, " + TEAMS + ")");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x + " + (ID_OFFSET + TEAMS) + ", concat('member', x), mod(x, 100), " +
+                "case when mod(x, 10) = 0 then null else " + ID_OFFSET + " + mod(x, " + TEAMS + ") + 1 end " +
+                "from system_range(1, " + ROWS + ")");
+        long members = count("member");
+        long teams = count("team");
+
+        Path file = tempDir.resolve("dataset.snapshot");
+        DatasetSnapshot.Stats dump = datasetSnapshot.dump(file);
+
+        jdbcTemplate.update("delete from member_archive");
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+
+        DatasetSnapshot.Stats restore = datasetSnapshot.restore(file);
+
+        assertThat(count("member")).isEqualTo(members);
+        assertThat(count("team")).isEqualTo(teams);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from member where team_id is null and member_id > " + ID_OFFSET, Long.class))
+                .isEqualTo(ROWS / 10);
+        assertThat(jdbcTemplate.queryForObject(
+                "select username from member where member_id = " + (ID_OFFSET + TEAMS + 1), String.class))
+                .isEqualTo("member1");
+
+        System.out.println("snapshot size : " + dump.getBytes() / 1024 + "KB (" + dump.getRows() + " rows)");
+        System.out.println("dump    : " + dump.getElapsedMillis() + "ms | " + dump.getRowsPerSecond() + " rows/s");
+        System.out.println("restore : " + restore.getElapsedMillis() + "ms | " + restore.getRowsPerSecond() + " rows/s");
+    }
+
+    @Test // 비교용 - QuerydslBasicTest.before() 처럼 엔티티를 하나씩 persist
+    public void persistOneByOne() {
+        long start = System.nanoTime();
+        Team team = new Team("team");
+        em.persist(team);
+        for (int i = 0; i < PERSIST_ROWS; i++) {
+            em.persist(new Member("member" + i, i % 100, team));
+        }
+        em.flush();
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println("persist : " + elapsed + "ms | " + PERSIST_ROWS * 1000L / elapsed + " rows/s");
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+}
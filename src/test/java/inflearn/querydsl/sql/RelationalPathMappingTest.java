@@ -0,0 +1,78 @@
+package inflearn.querydsl.sql;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.sql.RelationalPathBase;
+import inflearn.querydsl.entity.ArchivedMember;
+import inflearn.querydsl.entity.Member;
+import inflearn.querydsl.entity.Team;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SMember/STeam/SMemberArchive 는 손으로 작성한 RelationalPath 라서
+ * 엔티티 매핑이 바뀌면 조용히 어긋날 수 있다. Hibernate 메타모델과 테이블/컬럼 이름을 비교해 드리프트를 잡는다.
+ */
+@SpringBootTest
+class RelationalPathMappingTest {
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    public void member() {
+        assertMapping(SMember.member, Member.class);
+    }
+
+    @Test
+    public void team() {
+        assertMapping(STeam.team, Team.class);
+    }
+
+    @Test
+    public void memberArchive() {
+        assertMapping(SMemberArchive.memberArchive, ArchivedMember.class);
+    }
+
+    private void assertMapping(RelationalPathBase<?> path, Class<?> entityClass) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) emf.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .entityPersister(entityClass);
+
+        assertThat(path.getTableName()).isEqualToIgnoringCase(persister.getTableName());
+        assertThat(columnsOf(path)).isEqualTo(columnsOf(persister));
+    }
+
+    private static Set<String> columnsOf(RelationalPathBase<?> path) {
+        Set<String> columns = new TreeSet<>();
+        for (Path<?> column : path.getColumns()) {
+            columns.add(path.getMetadata(column).getName().toLowerCase());
+        }
+        return columns;
+    }
+
+    private static Set<String> columnsOf(AbstractEntityPersister persister) {
+        Set<String> columns = new TreeSet<>();
+        Arrays.stream(persister.getIdentifierColumnNames()).map(String::toLowerCase).forEach(columns::add);
+
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            if (types[i].isCollectionType()) {
+                continue; // mappedBy 컬렉션은 이 테이블에 컬럼이 없다
+            }
+            Arrays.stream(persister.getPropertyColumnNames(names[i])).map(String::toLowerCase).forEach(columns::add);
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,60 @@
+package inflearn.querydsl.support;
+
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 스프링 컨텍스트마다 다른 내장(in-memory) H2 DB 를 사용하도록 datasource, r2dbc url 을 바꾼다.
+ * - 설정이 같은 테스트 클래스는 캐시된 컨텍스트(= 같은 DB)를 함께 사용한다.
+ * - 설정이 다른 컨텍스트(@SpringBootTest(properties = ...) 등)는 새 DB 를 만든다.
+ *   같은 이름의 DB 를 쓰면 나중에 뜬 컨텍스트의 ddl-auto: create 가 먼저 뜬 컨텍스트의 테이블을 지운다.
+ * - 같은 DB 를 쓰는 클래스는 병렬로 실행되므로, 데이터를 커밋하거나 시간을 재는 테스트는 @Isolated 로 혼자 실행한다.
+ *   @Isolated 는 실행 시점만 나눌 뿐 데이터를 지우지 않는다. 커밋한 row 는 그 테스트가 직접 지운다.
+ *   (QuerydslBasicTest.removeCommittedFixture, MemberBitmapIndexTest.after)
+ * - -Dquerydsl.test.db=tcp 이면 application.yml 의 외부 H2 서버를 그대로 사용한다.
+ * META-INF/spring.factories 에 등록
+ */
+public class IsolatedDatabaseContextCustomizerFactory implements ContextCustomizerFactory {
+
+    static final String TEST_DB_PROPERTY = "querydsl.test.db";
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    @Override
+    public ContextCustomizer createContextCustomizer(Class<?> testClass,
+                                                     List<ContextConfigurationAttributes> configAttributes) {
+        if ("tcp".equals(System.getProperty(TEST_DB_PROPERTY))) return null;
+        return new IsolatedDatabaseContextCustomizer();
+    }
+
+    /** 컨텍스트 캐시 키에 테스트 클래스가 들어가지 않도록 모든 인스턴스가 같다. */
+    private static final class IsolatedDatabaseContextCustomizer implements ContextCustomizer {
+
+        // 컨텍스트를 새로 만들 때만 호출된다.
+        @Override
+        public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+            String database = "querydsl_test_" + databases.incrementAndGet();
+            TestPropertyValues.of(
+                    "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                    "spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1"
+            ).applyTo(context);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
+}